@@ -0,0 +1,136 @@
+package logic;
+
+import io.IO;
+import objects.CrawlOption;
+import objects.PromptOutput;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.EnumSet;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+
+/**
+ * CrawlBenchmark runs a full crawl, headless, of a SyntheticSite served from localhost and reports
+ * urls/s, imgs/s, bytes/s and the p50/p99 of every stage -> ./gradlew crawlBenchmark -PbenchmarkArgs="--pages=2000 ..."
+ * <p>
+ * site: --pages (1000) --fanOut (8) --pageBytes (16384) --images (200) --imagesPerPage (4)
+ * --latency in ms (20) --errors as a share of the pages (0.01) --seed (42)
+ * <p>
+ * crawler: --threads (32) --imageThreads (derived from --threads) --options, a comma separated list of CrawlOption (none), e.g. --options=async,raw_images
+ * --stacktrace prints every failed fetch
+ * <p>
+ * The crawl is archived like any other, under the init file of the working directory,
+ * one is written pointing to ./archive if there is none.
+ */
+public class CrawlBenchmark {
+
+    public static void main(String[] args) throws IOException, InterruptedException {
+        Map<String, String> arguments = parse(args);
+
+        // the synthetic host resolves to loopback, before anything looks up an address
+        Path hosts = Files.createTempFile("synthetic-hosts", "");
+        hosts.toFile().deleteOnExit();
+        Files.write(hosts, ("127.0.0.1 " + SyntheticSite.HOST + "\n").getBytes(StandardCharsets.UTF_8));
+        System.setProperty("jdk.net.hosts.file", hosts.toString());
+
+        if (IO.readInitFile() == null) {
+            File archive = new File("archive").getAbsoluteFile();
+            if (!archive.mkdirs() && !archive.isDirectory()) {
+                throw new IOException("failed to create " + archive);
+            }
+            new File("Files").mkdirs();
+            IO.writeInitFile(archive);
+        }
+
+        int pages = Integer.parseInt(arguments.getOrDefault("pages", "1000"));
+        int images = Integer.parseInt(arguments.getOrDefault("images", "200"));
+        int threads = Integer.parseInt(arguments.getOrDefault("threads", "32"));
+        EnumSet<CrawlOption> options = EnumSet.noneOf(CrawlOption.class);
+        if (arguments.containsKey("options")) {
+            for (String option : arguments.get("options").split(",")) {
+                options.add(CrawlOption.valueOf(option.trim().toUpperCase(Locale.ROOT)));
+            }
+        }
+
+        try (SyntheticSite site = new SyntheticSite(pages,
+                Integer.parseInt(arguments.getOrDefault("fanOut", "8")),
+                Integer.parseInt(arguments.getOrDefault("pageBytes", "16384")),
+                images,
+                Integer.parseInt(arguments.getOrDefault("imagesPerPage", "4")),
+                Integer.parseInt(arguments.getOrDefault("latency", "20")),
+                Double.parseDouble(arguments.getOrDefault("errors", "0.01")),
+                Long.parseLong(arguments.getOrDefault("seed", "42")))) {
+
+            System.out.println(String.format("crawling %s | %d pages | %d threads | options: %s",
+                    site.getRootUrl(), pages, threads, options));
+
+            Crawler crawler = new Crawler(site.getRootUrl(), threads, pages, images > 0,
+                    Integer.parseInt(arguments.getOrDefault("imageThreads", "0")),
+                    arguments.containsKey("stacktrace"), options, new StandardOutput(), null);
+            ConcurrentDataTracker dataTracker = crawler.getDataTracker();
+
+            ConcurrentDataTracker.Snapshot start = dataTracker.snapshot();
+            crawler.init();
+            crawler.awaitFinished();
+
+            System.out.println(dataTracker.getSummary(start, dataTracker.snapshot()));
+        }
+        // the crawl's http clients and pools don't hold the jvm up
+        System.exit(0);
+    }
+
+    /** --name=value, --name alone is "true"
+     */
+    private static Map<String, String> parse(String[] args) {
+        Map<String, String> arguments = new HashMap<>();
+        for (String arg : args) {
+            if (!arg.startsWith("--")) {
+                throw new IllegalArgumentException("expected --name=value: " + arg);
+            }
+            int equals = arg.indexOf('=');
+            if (equals == -1) {
+                arguments.put(arg.substring(2), "true");
+            } else {
+                arguments.put(arg.substring(2, equals), arg.substring(equals + 1));
+            }
+        }
+        return arguments;
+    }
+
+    /**
+     * StandardOutput prints the crawler's prompt output to standard out, without its styles
+     */
+    private static class StandardOutput implements PromptOutput {
+
+        @Override
+        public void println(String text, List<String> style) {
+            print(text);
+        }
+
+        @Override
+        public void println(String text, List<String> style, int from, int to, List<String> styleFromTo) {
+            print(text);
+        }
+
+        @Override
+        public void println(String text, List<String> defaultStyle, int a, int b, List<String> styleA,
+                            int c, int d, List<String> styleB) {
+            print(text);
+        }
+
+        @Override
+        public void lineSeparator() {
+            System.out.println();
+        }
+
+        private static void print(String text) {
+            System.out.println(text.endsWith("\n") ? text.substring(0, text.length() - 1) : text);
+        }
+    }
+}
@@ -0,0 +1,31 @@
+package logic;
+
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.net.MalformedURLException;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * DirectoryBenchmark measures Directory.parseUrl, the domain name every crawl and catalog entry is filed under.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Thread)
+public class DirectoryBenchmark {
+    private final String[] urls = {
+            "https://www.aftonbladet.se",
+            "https://www.example.com/nyheter/a/1000/rubrik-nummer-0",
+            "http://www.svt.se/nyheter/",
+    };
+
+    @Benchmark
+    public void parseUrl(Blackhole blackhole) throws MalformedURLException {
+        for (String url : urls) {
+            blackhole.consume(Directory.parseUrl(url));
+        }
+    }
+}
@@ -0,0 +1,167 @@
+package logic;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+
+import javax.imageio.ImageIO;
+import java.awt.image.BufferedImage;
+import java.io.ByteArrayOutputStream;
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.util.Random;
+import java.util.SplittableRandom;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * SyntheticSite is a generated website served from localhost, to crawl without touching the network:
+ * pages 0..pages-1, each linking to fanOut others (always to the next one, every page is reachable from the root)
+ * and to imagesPerPage of the site's images, padded to pageBytes. Every answer is held back latencyMillis,
+ * a share errorRate of the pages answers 500. All of it follows from the seed, two sites of the same knobs
+ * are the same site.
+ */
+class SyntheticSite implements Closeable {
+    static final String HOST = "www.synthetic.test"; // Directory only takes www urls, resolved to 127.0.0.1
+    private static final Pattern PAGE = Pattern.compile("^/page/(\\d+)\\.html$");
+    private static final Pattern IMAGE = Pattern.compile("^/img/(\\d+)\\.png$");
+    private static final String STYLESHEET = "body { font-family: sans-serif; } article { margin: 1em 0; }";
+    private static final String FILLER = "Lorem ipsum dolor sit amet, consectetur adipiscing elit, sed do eiusmod tempor " +
+            "incididunt ut labore et dolore magna aliqua. ";
+
+    private final int pages;
+    private final int fanOut;
+    private final int pageBytes;
+    private final int images;
+    private final int imagesPerPage;
+    private final int latencyMillis;
+    private final double errorRate;
+    private final long seed;
+    private final byte[] image;
+    private final HttpServer server;
+    private final ExecutorService executor;
+
+    SyntheticSite(int pages, int fanOut, int pageBytes, int images, int imagesPerPage,
+                  int latencyMillis, double errorRate, long seed) throws IOException {
+        this.pages = pages;
+        this.fanOut = fanOut;
+        this.pageBytes = pageBytes;
+        this.images = images;
+        this.imagesPerPage = images > 0 ? imagesPerPage : 0;
+        this.latencyMillis = latencyMillis;
+        this.errorRate = errorRate;
+        this.seed = seed;
+        this.image = png(seed);
+
+        server = HttpServer.create(new InetSocketAddress(InetAddress.getLoopbackAddress(), 0), 1024);
+        // answers sleep for the latency, a thread each keeps them from queueing behind one another
+        executor = Executors.newCachedThreadPool(task -> {
+            Thread thread = new Thread(task, "synthetic-site");
+            thread.setDaemon(true);
+            return thread;
+        });
+        server.setExecutor(executor);
+        server.createContext("/", this::handle);
+        server.start();
+    }
+
+    String getRootUrl() {
+        return "http://" + HOST + ":" + server.getAddress().getPort() + "/";
+    }
+
+    @Override
+    public void close() {
+        server.stop(0);
+        executor.shutdownNow();
+    }
+
+    private void handle(HttpExchange exchange) throws IOException {
+        try {
+            if (latencyMillis > 0) {
+                Thread.sleep(latencyMillis);
+            }
+
+            String path = exchange.getRequestURI().getPath();
+            Matcher page = PAGE.matcher(path);
+            Matcher image = IMAGE.matcher(path);
+
+            if (path.equals("/")) {
+                send(exchange, 200, "text/html; charset=utf-8", page(0));
+            } else if (page.matches() && Integer.parseInt(page.group(1)) < pages) {
+                int i = Integer.parseInt(page.group(1));
+                if (new SplittableRandom(seed - 1 - i).nextDouble() < errorRate) {
+                    send(exchange, 500, "text/plain", "synthetic error".getBytes(StandardCharsets.UTF_8));
+                } else {
+                    send(exchange, 200, "text/html; charset=utf-8", page(i));
+                }
+            } else if (image.matches() && Integer.parseInt(image.group(1)) < images) {
+                send(exchange, 200, "image/png", this.image);
+            } else if (path.equals("/site.css")) {
+                send(exchange, 200, "text/css", STYLESHEET.getBytes(StandardCharsets.UTF_8));
+            } else {
+                // robots.txt among them, no crawl-delay
+                send(exchange, 404, "text/plain", "not found".getBytes(StandardCharsets.UTF_8));
+            }
+        } catch (InterruptedException ex) {
+            Thread.currentThread().interrupt();
+        } finally {
+            exchange.close();
+        }
+    }
+
+    private static void send(HttpExchange exchange, int status, String contentType, byte[] body) throws IOException {
+        exchange.getResponseHeaders().set("Content-Type", contentType);
+        exchange.sendResponseHeaders(status, body.length);
+        try (OutputStream out = exchange.getResponseBody()) {
+            out.write(body);
+        }
+    }
+
+    private byte[] page(int i) {
+        // seeds next to each other, java.util.Random would start them off alike
+        SplittableRandom random = new SplittableRandom(seed + i);
+        StringBuilder html = new StringBuilder(pageBytes + 1024);
+
+        html.append("<!DOCTYPE html>\n<html>\n<head>\n<meta charset=\"utf-8\">\n<title>Synthetic page ").append(i)
+                .append("</title>\n<link rel=\"stylesheet\" href=\"/site.css\">\n</head>\n<body>\n<nav>\n");
+        for (int link = 0; link < fanOut; link++) {
+            int target = link == 0 ? (i + 1) % pages : random.nextInt(pages);
+            html.append("<a href=\"").append(target == 0 ? "/" : "/page/" + target + ".html").append("\">page ")
+                    .append(target).append("</a>\n");
+        }
+        html.append("</nav>\n<main>\n");
+        for (int img = 0; img < imagesPerPage; img++) {
+            html.append("<img src=\"/img/").append(random.nextInt(images)).append(".png\" alt=\"\">\n");
+        }
+        while (html.length() < pageBytes) {
+            html.append("<p>").append(FILLER).append(FILLER).append("</p>\n");
+        }
+        html.append("</main>\n</body>\n</html>\n");
+        return html.toString().getBytes(StandardCharsets.UTF_8);
+    }
+
+    /** a noisy png, incompressible enough to weigh about what a small photo does
+     */
+    private static byte[] png(long seed) {
+        Random random = new Random(seed);
+        BufferedImage image = new BufferedImage(96, 96, BufferedImage.TYPE_INT_RGB);
+        for (int x = 0; x < image.getWidth(); x++) {
+            for (int y = 0; y < image.getHeight(); y++) {
+                image.setRGB(x, y, random.nextInt(0xffffff));
+            }
+        }
+        try {
+            ByteArrayOutputStream out = new ByteArrayOutputStream();
+            ImageIO.write(image, "png", out);
+            return out.toByteArray();
+        } catch (IOException ex) {
+            throw new UncheckedIOException(ex);
+        }
+    }
+}
@@ -0,0 +1,50 @@
+package objects;
+
+import org.openjdk.jmh.annotations.*;
+
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * UniqueListBenchmark compares UniqueConcurrentArrayList with UniqueConcurrentAppendList
+ * as Crawler.Write uses them: 10 threads adding image urls, most of them already seen
+ * (pages of a site share their images).
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@Threads(10)
+@State(Scope.Benchmark)
+public class UniqueListBenchmark {
+    private static final int DISTINCT_URLS = 1 << 16;
+
+    private String[] urls;
+    private UniqueConcurrentArrayList<String> arrayList;
+    private UniqueConcurrentAppendList<String> appendList;
+
+    @Setup(Level.Trial)
+    public void createUrls() {
+        urls = new String[DISTINCT_URLS];
+        for (int i = 0; i < urls.length; i++) {
+            urls[i] = "https://www.example.com/assets/images/" + i + ".jpg";
+        }
+    }
+
+    @Setup(Level.Iteration)
+    public void createLists() {
+        arrayList = new UniqueConcurrentArrayList<>();
+        appendList = new UniqueConcurrentAppendList<>();
+    }
+
+    @Benchmark
+    public boolean arrayListAdd() {
+        return arrayList.add(urls[ThreadLocalRandom.current().nextInt(DISTINCT_URLS)]);
+    }
+
+    @Benchmark
+    public boolean appendListAdd() {
+        return appendList.add(urls[ThreadLocalRandom.current().nextInt(DISTINCT_URLS)]);
+    }
+}
@@ -0,0 +1,45 @@
+package utils;
+
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * CrawlUtilsBenchmark measures the string helpers called for every image of every page:
+ * getExtensionType and convertSrcSetToUrl, on urls as they come out of the fixture's img and source tags.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Thread)
+public class CrawlUtilsBenchmark {
+    private final String[] urls = {
+            "https://img.example.com/nyheter/1000-600.jpg",
+            "/images/sport/1037-800.jpg 800w",
+            "https://img.example.com/noje/1074.png?w=640&q=80",
+            "https://www.example.com/assets/images/logo.svg",
+            "https://img.example.com/ekonomi/1111",
+    };
+    private final String[] srcSets = {
+            "https://img.example.com/nyheter/1000-1200.webp 1200w, https://img.example.com/nyheter/1000-600.webp 600w",
+            "/images/sport/1037-800.jpg 800w, /images/sport/1037-400.jpg 400w",
+            "https://img.example.com/noje/1074.png",
+    };
+
+    @Benchmark
+    public void getExtensionType(Blackhole blackhole) {
+        for (String url : urls) {
+            blackhole.consume(CrawlUtils.getExtensionType(url));
+        }
+    }
+
+    @Benchmark
+    public void convertSrcSetToUrl(Blackhole blackhole) {
+        for (String srcSet : srcSets) {
+            blackhole.consume(CrawlUtils.convertSrcSetToUrl(srcSet));
+        }
+    }
+}
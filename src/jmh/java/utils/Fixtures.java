@@ -0,0 +1,27 @@
+package utils;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * Fixtures reads the pages the benchmarks run against, from src/jmh/resources/fixtures
+ */
+public class Fixtures {
+    public static final String LOCATION = "https://www.example.com/";
+
+    public static String page() {
+        try (InputStream in = Fixtures.class.getResourceAsStream("/fixtures/page.html")) {
+            if (in == null) {
+                throw new IllegalStateException("fixtures/page.html is not on the classpath");
+            }
+            ByteArrayOutputStream out = new ByteArrayOutputStream();
+            in.transferTo(out);
+            return new String(out.toByteArray(), StandardCharsets.UTF_8);
+        } catch (IOException ex) {
+            throw new UncheckedIOException(ex);
+        }
+    }
+}
@@ -0,0 +1,83 @@
+package utils;
+
+import org.jsoup.Jsoup;
+import org.jsoup.nodes.Document;
+import org.jsoup.nodes.Element;
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.io.IOException;
+import java.io.StringReader;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * LinkExtractionBenchmark measures what Crawler.Crawl does with every fetched page: collecting its links and images
+ * and pointing them at the local files. The streaming LinkRewriter the crawler uses against the Jsoup DOM
+ * it replaced (parse, select, rewrite attributes, serialize), on the fixture page.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Benchmark)
+public class LinkExtractionBenchmark {
+    @Param({"false", "true"})
+    public boolean images;
+
+    private String page;
+
+    @Setup(Level.Trial)
+    public void readFixture() {
+        page = Fixtures.page();
+    }
+
+    @Benchmark
+    public void linkRewriter(Blackhole blackhole) throws IOException {
+        LinkRewriter rewriter = new LinkRewriter(Fixtures.LOCATION, images);
+        StringBuilder html = new StringBuilder(page.length());
+        rewriter.rewrite(new StringReader(page), html);
+        blackhole.consume(rewriter.getLinks());
+        blackhole.consume(rewriter.getImages());
+        blackhole.consume(html);
+    }
+
+    @Benchmark
+    public void jsoup(Blackhole blackhole) {
+        Document doc = Jsoup.parse(page, Fixtures.LOCATION);
+        List<String> links = new ArrayList<>();
+        List<String> imageUrls = new ArrayList<>();
+
+        for (Element anchor : doc.select("a[href]")) {
+            String url = anchor.absUrl("href");
+            anchor.attr("href", url.hashCode() + ".html");
+            links.add(url);
+        }
+        for (Element link : doc.select("link[rel=stylesheet]")) {
+            link.attr("href", "../assets/css/" + link.absUrl("href").hashCode() + ".css");
+        }
+        if (images) {
+            for (Element source : doc.select("picture source[srcSet], img[srcSet]")) {
+                String url = source.attr("src").isEmpty() ?
+                        CrawlUtils.convertSrcSetToUrl(source.attr("srcSet")) : source.attr("src");
+                source.parent().append("<img src=\"" + url + "\">");
+                source.remove();
+            }
+            for (Element img : doc.select("img[src]")) {
+                String url = img.absUrl("src");
+                String extensionType = CrawlUtils.getExtensionType(url);
+                if (!extensionType.equals("noContentType")) {
+                    img.attr("src", "../assets/images/" + url.hashCode() + "." + extensionType);
+                    imageUrls.add(url);
+                }
+            }
+        }
+
+        blackhole.consume(links);
+        blackhole.consume(imageUrls);
+        blackhole.consume(doc.title());
+        blackhole.consume(doc.html());
+    }
+}
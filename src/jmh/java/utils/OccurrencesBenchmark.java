@@ -0,0 +1,61 @@
+package utils;
+
+import io.ArchiveReader;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * OccurrencesBenchmark measures what the advanced search does per archived page (SearchManager.occurrences):
+ * counting every term of a query in the page's text, one pass of the AhoCorasick automaton
+ * against a TextMatcher pass per term.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Benchmark)
+public class OccurrencesBenchmark {
+    @Param({"1", "4", "16"})
+    public int terms;
+
+    private CharSequence text;
+    private AhoCorasick automaton;
+    private TextMatcher[] matchers;
+
+    @Setup(Level.Trial)
+    public void compile() {
+        text = TextUtils.words(ArchiveReader.text(Fixtures.page()));
+
+        List<String> query = Arrays.asList("rubrik", "sport", "artikel", "läs mer", "relaterat", "ekonomi",
+                "nummer", "kultur", "ingress", "debatt", "annat", "resor", "bild", "extern", "tipsa", "kontakt")
+                .subList(0, terms);
+        List<String> patterns = new ArrayList<>();
+        for (String term : query) {
+            patterns.add(TextUtils.words(term));
+        }
+        automaton = AhoCorasick.compile(patterns);
+        matchers = new TextMatcher[patterns.size()];
+        for (int i = 0; i < matchers.length; i++) {
+            matchers[i] = TextMatcher.compile(patterns.get(i));
+        }
+    }
+
+    @Benchmark
+    public int[] ahoCorasick() {
+        return automaton.count(text);
+    }
+
+    @Benchmark
+    public int[] textMatcherPerTerm() {
+        int[] counts = new int[matchers.length];
+        for (int i = 0; i < matchers.length; i++) {
+            counts[i] = matchers[i].count(text);
+        }
+        return counts;
+    }
+}
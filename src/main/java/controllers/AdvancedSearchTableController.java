@@ -1,6 +1,10 @@
 package controllers;
 
+import io.ArchiveReader;
 import io.IO;
+import io.PageStore;
+import io.PageTable;
+import io.SearchIndex;
 import javafx.collections.FXCollections;
 import javafx.collections.ListChangeListener;
 import javafx.collections.ObservableList;
@@ -15,17 +19,24 @@ import javafx.scene.layout.GridPane;
 import javafx.scene.web.WebView;
 import javafx.stage.Stage;
 import javafx.util.Duration;
+import objects.ArchiveTreeItem;
 import objects.MyTab;
 import objects.TableViewObject;
 import org.jetbrains.annotations.NotNull;
-import org.jsoup.Jsoup;
-import org.jsoup.nodes.Document;
+import utils.AhoCorasick;
 import utils.FontUtils;
+import utils.GUIUtils;
+import utils.SearchQuery;
+import utils.TextUtils;
 
 import java.io.File;
 import java.io.IOException;
 import java.net.URL;
+import java.util.ArrayList;
+import java.util.LinkedHashSet;
+import java.util.List;
 import java.util.ResourceBundle;
+import java.util.Set;
 import java.util.concurrent.ExecutorService;
 import java.util.concurrent.Executors;
 import java.util.concurrent.TimeUnit;
@@ -136,7 +147,7 @@ public class AdvancedSearchTableController implements Initializable {
                 tabPane.getSelectionModel().selectLast();
                 tabPane.getScene().getWindow().requestFocus();
                 tabPane.getSelectionModel().getSelectedItem().getContent().requestFocus();
-                webView.getEngine().load(inFile.toURI().toString());
+                GUIUtils.loadPage(webView.getEngine(), inFile);
             }
         });
 
@@ -185,19 +196,32 @@ public class AdvancedSearchTableController implements Initializable {
     }
 
     private void search(final String text, final ObservableList<TreeItem<String>> list) {
+        try {
+            searchManager = new SearchManager(text, list);
+        } catch (IllegalArgumentException ex) {
+            label.setText(ex.getMessage());
+            return;
+        }
         label.setText("searching for '" + text + "' ...");
         TableViewObject.resetCountId();
         ExecutorService singleThreadPool = Executors.newSingleThreadExecutor();
-        singleThreadPool.execute(searchManager = new SearchManager(text, list));
+        singleThreadPool.execute(searchManager);
     }
 
     private class SearchManager implements Runnable {
-        private final String text;
+        private final SearchQuery query;
+        private final AhoCorasick automaton;
         private final ObservableList<TreeItem<String>> treeItemList;
         private ExecutorService threadPool = Executors.newFixedThreadPool(10);
 
         private SearchManager(String text, ObservableList<TreeItem<String>> treeItemList) {
-            this.text = text;
+            this.query = SearchQuery.parse(text);
+            // scanning matches words the way the index does
+            List<String> patterns = new ArrayList<>();
+            for (String term : query.getTerms()) {
+                patterns.add(TextUtils.words(term));
+            }
+            this.automaton = AhoCorasick.compile(patterns);
             this.treeItemList = treeItemList;
         }
 
@@ -205,11 +229,18 @@ public class AdvancedSearchTableController implements Initializable {
         public void run() {
             long startTime = System.nanoTime();
 
-            for (TreeItem<String> treeItem : treeItemList) {
-                if (treeItem.isLeaf()) {
-                    threadPool.submit(new SearchDoc(text, treeItem));
+            // a checked domain, year or month stands for every day under it, listed or not
+            Set<TreeItem<String>> days = new LinkedHashSet<>();
+            for (TreeItem<String> treeItem : new ArrayList<>(treeItemList)) {
+                if (treeItem instanceof ArchiveTreeItem) {
+                    days.addAll(((ArchiveTreeItem) treeItem).leaves());
+                } else if (treeItem.isLeaf()) {
+                    days.add(treeItem);
                 }
             }
+            for (TreeItem<String> treeItem : days) {
+                threadPool.submit(new SearchDoc(query, treeItem));
+            }
 
             threadPool.shutdown();
 
@@ -226,28 +257,40 @@ public class AdvancedSearchTableController implements Initializable {
         }
 
         private class SearchDoc implements Runnable {
-            private String textToSearchFor;
+            private final SearchQuery queryToSearchFor;
             private final TreeItem<String> treeItem;
             private File searchDir;
 
-            private SearchDoc(String textToSearchFor, TreeItem<String> treeItem) {
-                this.textToSearchFor = textToSearchFor;
+            private SearchDoc(SearchQuery queryToSearchFor, TreeItem<String> treeItem) {
+                this.queryToSearchFor = queryToSearchFor;
                 this.treeItem = treeItem;
                 this.searchDir = new File(getPath(treeItem) + "\\html");
             }
 
             @Override
             public void run() {
+                try (SearchIndex index = SearchIndex.open(searchDir.getParentFile())) {
+                    for (SearchIndex.Hit hit : index.search(queryToSearchFor)) {
+                        File currentFile = new File(searchDir.getAbsolutePath() + "\\" + hit.getName());
+                        runSafe(() -> tableData.add(new TableViewObject(hit.getTitle(), getDomainName(treeItem),
+                                hit.getMatches(), treeItem, currentFile)));
+                    }
+                } catch (IOException ex) {
+                    // index could not be read or built -> fall back to scanning the html files
+                    ex.printStackTrace();
+                    scan();
+                }
+            }
+
+            private void scan() {
                 try {
-                    File[] listFiles = searchDir.listFiles();
-
-                    assert listFiles != null;
-                    for (File currentFile : listFiles) {
-                        Document document = Jsoup.parse(currentFile, "UTF-8");
-                        int matches;
-                        if ((matches = occurrences(document.text(), textToSearchFor)) != 0) {
-                            runSafe(() -> tableData.add(new TableViewObject(document, getDomainName(treeItem), matches,
-                                    treeItem, currentFile)));
+                    for (File currentFile : PageStore.list(searchDir)) {
+                        // scanned in place, no DOM per page
+                        int[] counts = occurrences(ArchiveReader.text(currentFile));
+                        if (queryToSearchFor.evaluate(counts)) {
+                            String title = PageTable.title(currentFile);
+                            runSafe(() -> tableData.add(new TableViewObject(title, getDomainName(treeItem),
+                                    queryToSearchFor.matches(counts), treeItem, currentFile)));
                         }
 
                     }
@@ -257,16 +300,10 @@ public class AdvancedSearchTableController implements Initializable {
             }
         }
 
-        private int occurrences(String document, @NotNull String text) {
-            document = document.toLowerCase();
-            int count = 0;
-
-            while (document.contains(text.toLowerCase())) {
-                document = document.replaceFirst(text, "");
-                count++;
-            }
-
-            return count;
+        /** counts every term of the query in a single pass over the words of document
+         */
+        private int[] occurrences(@NotNull CharSequence document) {
+            return automaton.count(TextUtils.words(document));
         }
 
         @NotNull
@@ -1,4 +1,5 @@
 package controllers;
+import io.IO;
 import javafx.fxml.FXML;
 import javafx.fxml.FXMLLoader;
 import javafx.fxml.Initializable;
@@ -10,10 +11,14 @@ import javafx.scene.layout.GridPane;
 import javafx.stage.Modality;
 import javafx.stage.Stage;
 import javafx.stage.StageStyle;
+import javafx.util.Duration;
+import objects.ArchiveTreeItem;
 import org.controlsfx.control.CheckTreeView;
 import org.controlsfx.control.textfield.CustomTextField;
 import utils.FontUtils;
 
+import java.io.File;
+import java.io.IOException;
 import java.net.URL;
 import java.util.ResourceBundle;
 
@@ -79,31 +84,12 @@ public class AdvancedSearchTreeController implements Initializable {
         /*
         INIT checkTreeView
          */
-        CheckBoxTreeItem<String> root = new CheckBoxTreeItem<String>(treeView.getRoot().getValue());
-
-        for (TreeItem<String> domainTreeItem : treeView.getRoot().getChildren()) {
-            CheckBoxTreeItem<String> domainCheckItem = new CheckBoxTreeItem<>(domainTreeItem.getValue());
-            domainCheckItem.setExpanded(true);
-            root.getChildren().add(domainCheckItem);
-
-            for (TreeItem<String> yearTreeItem : domainTreeItem.getChildren()) {
-                CheckBoxTreeItem<String> yearCheckItem = new CheckBoxTreeItem<>(yearTreeItem.getValue());
-                yearCheckItem.setExpanded(true);
-                domainCheckItem.getChildren().add(yearCheckItem);
-
-                for (TreeItem<String> monthTreeItem : yearTreeItem.getChildren()) {
-                    CheckBoxTreeItem<String> monthCheckItem = new CheckBoxTreeItem<>(monthTreeItem.getValue());
-                    monthCheckItem.setExpanded(true);
-                    yearCheckItem.getChildren().add(monthCheckItem);
-
-                    for (TreeItem<String> dayTreeItem : monthTreeItem.getChildren()) {
-                        CheckBoxTreeItem<String> dayCheckItem = new CheckBoxTreeItem<>(dayTreeItem.getValue());
-                        dayCheckItem.setExpanded(true);
-                        monthCheckItem.getChildren().add(dayCheckItem);
-                    }
-                }
-            }
+        // a tree of its own over the same folders, listed as it's expanded
+        File initFile = IO.readInitFile();
+        if (initFile == null) {
+            throw new IOException("initFile == null");
         }
+        ArchiveTreeItem root = ArchiveTreeItem.root(new File(initFile.getAbsolutePath() + "\\" + "domains"));
 
         root.setExpanded(true);
         checkTreeView.setRoot(root);
@@ -133,6 +119,8 @@ public class AdvancedSearchTreeController implements Initializable {
 
         searchField.setRight(searchButton);
         searchField.getStyleClass().add("search-text-field");
+        searchField.setTooltip(new Tooltip("words and \"phrases\", combined with AND, OR, NOT and ( )"));
+        searchField.getTooltip().setShowDelay(Duration.millis(500));
 
         gridPane.add(searchField, 1, 2);
 
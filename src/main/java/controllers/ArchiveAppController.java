@@ -8,9 +8,11 @@ import javafx.scene.layout.BorderPane;
 import javafx.scene.text.TextFlow;
 import javafx.util.Duration;
 import logic.CommandLineLogic;
+import objects.ArchiveTreeItem;
 import objects.CommandPrompt;
 import objects.MyTab;
 import io.IO;
+import io.PageTable;
 import de.jensd.fx.glyphs.fontawesome.FontAwesomeIconView;
 import javafx.event.Event;
 import javafx.event.EventHandler;
@@ -26,12 +28,11 @@ import javafx.scene.text.Text;
 import javafx.scene.web.WebView;
 import javafx.stage.*;
 import org.jetbrains.annotations.NotNull;
-import org.jsoup.Jsoup;
 import utils.FontUtils;
+import utils.GUIUtils;
 
 import java.io.File;
 import java.io.IOException;
-import java.time.Month;
 import java.util.*;
 
 import static io.IO.readRootUrl;
@@ -96,43 +97,8 @@ public class ArchiveAppController {
             System.exit(0);
         }
 
-        TreeItem<String> rootTreeItem = new TreeItem<>(rootFile.getName().toUpperCase());
-        rootTreeItem.setGraphic(FontUtils.createRootView());
-
-        for (File currentDomainFile : Objects.requireNonNull(rootFile.listFiles())) {
-            TreeItem<String> domainTreeItem = new TreeItem<>(currentDomainFile.getName());
-            domainTreeItem.setGraphic(FontUtils.createBranchView());
-
-            for (File currentYearFile : Objects.requireNonNull(currentDomainFile.listFiles())) {
-                TreeItem<String> yearTreeItem = new TreeItem<>(currentYearFile.getName());
-                yearTreeItem.setGraphic(FontUtils.createBranchView());
-                domainTreeItem.getChildren().add(yearTreeItem);
-
-                for (File currentMonthFile : Objects.requireNonNull(currentYearFile.listFiles())) {
-                    TreeItem<String> monthTreeItem = new TreeItem<>(currentMonthFile.getName());
-                    monthTreeItem.setGraphic(FontUtils.createBranchView());
-                    yearTreeItem.getChildren().add(monthTreeItem);
-
-                    for (File currentDayFile : Objects.requireNonNull(currentMonthFile.listFiles())) {
-                        TreeItem<String> dayTreeItem = new TreeItem<>(currentDayFile.getName());
-                        dayTreeItem.setGraphic(FontUtils.createLeafView());
-                        monthTreeItem.getChildren().add(dayTreeItem);
-                    }
-
-                    monthTreeItem.getChildren().sort(
-                            Comparator.comparingInt(o -> Integer.parseInt(o.getValue().split("(ST|ND|RD|TH)", 2)[0])));
-                }
-
-                yearTreeItem.getChildren().sort(
-                        Comparator.comparingInt(o -> Month.valueOf(o.getValue()).getValue()));
-            }
-
-            domainTreeItem.getChildren().sort(
-                    Comparator.comparingInt(o -> Integer.parseInt(o.getValue())));
-            rootTreeItem.getChildren().add(domainTreeItem);
-        }
-
-        rootTreeItem.getChildren().sort(Comparator.comparing(TreeItem::getValue));
+        // domains, years, months and days are listed as they're expanded
+        ArchiveTreeItem rootTreeItem = ArchiveTreeItem.root(rootFile);
         treeView.setRoot(rootTreeItem);
 
         // make a copy of treeView
@@ -371,8 +337,7 @@ public class ArchiveAppController {
         String title = "";
 
         try {
-            title = Jsoup.parse(
-                    fileToBeLoaded, "UTF-8").title();
+            title = PageTable.title(fileToBeLoaded);
         } catch (IOException ex) {
             ex.printStackTrace();
         }
@@ -398,7 +363,7 @@ public class ArchiveAppController {
         // Request focus for newly created WebView
         tabPane.getSelectionModel().getSelectedItem().getContent().requestFocus();
         // Load selected html doc into engine
-        webView.getEngine().load(fileToBeLoaded.toURI().toString());
+        GUIUtils.loadPage(webView.getEngine(), fileToBeLoaded);
 
     }
 
@@ -17,6 +17,7 @@ import javafx.scene.input.KeyEvent;
 import java.net.URL;
 import java.util.ResourceBundle;
 import utils.FontUtils;
+import utils.TextMatcher;
 
 public class SearchController implements Initializable {
 
@@ -44,6 +45,9 @@ public class SearchController implements Initializable {
 
     private int count = 0;
 
+    private TextMatcher matcher;
+    private String matcherText;
+
     @Override
     public void initialize(URL location, ResourceBundle resourceBundle) {
         upButton.setGraphic(FontUtils.createView("up-button-icon"));
@@ -150,16 +154,12 @@ public class SearchController implements Initializable {
     private int getOccurrences(@NotNull WebEngine engine, @NotNull String text) {
         Object obj = engine.executeScript("document.body.innerText");
 
-        String str = (String) obj;
-        str = str.toLowerCase();
-        int count = 0;
-
-        while (str.contains(text.toLowerCase())) {
-            str = str.replaceFirst(text, "");
-            count++;
+        if (matcher == null || !matcherText.equals(text)) {
+            matcher = TextMatcher.compile(text);
+            matcherText = text;
         }
 
-        return count;
+        return matcher.count((String) obj);
     }
 
 }
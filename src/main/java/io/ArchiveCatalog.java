@@ -0,0 +1,358 @@
+package io;
+
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import java.io.*;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.*;
+import java.util.stream.Stream;
+
+/**
+ * ArchiveCatalog lists every crawl of the archive: domain, date, root url, page and image counts,
+ * runtime and size on disk. It is a single append-only file, catalog.data in the Files folder,
+ * read in one go the first time it's needed. A crawl is appended when it starts and again when
+ * it's logged, on load the latest record of a crawl wins.
+ *
+ * The tree of domains, years, months and days is listed from disk, the catalog only spares a look
+ * at the names it knows are crawl folders. An archive without a catalog, or with one that isn't
+ * a catalog at all, is scanned once, url.data and log.data files of older crawls included,
+ * and the catalog written. A catalog corrupt part way is cut back to its last good record.
+ */
+public class ArchiveCatalog {
+    private static final String CATALOG_FILE = "\\catalog.data";
+    private static final String DOMAINS = "\\domains";
+    private static final int MAGIC = 0x41434154;
+    private static ArchiveCatalog catalog = null;
+
+    private final File file;
+    private final File domainsFolder;
+    private final Map<String, Crawl> crawls = new HashMap<>();   // domain\year\month\day, lower case -> crawl
+    private final Map<String, Map<String, String>> children = new HashMap<>();   // folder -> lower case name -> name
+
+    private ArchiveCatalog(File rootFolder) {
+        this.file = new File(rootFolder.getAbsolutePath() + CATALOG_FILE);
+        this.domainsFolder = new File(rootFolder.getAbsolutePath() + DOMAINS);
+    }
+
+    /** the catalog of the archive in the init folder, read once per process
+     */
+    public static synchronized ArchiveCatalog open() throws IOException {
+        if (catalog == null) {
+            File initFile = IO.readInitFile();
+            if (initFile == null) {
+                throw new IOException("initFile == null");
+            }
+            ArchiveCatalog opened = new ArchiveCatalog(initFile);
+            if (opened.file.exists()) {
+                opened.load();
+            } else {
+                opened.migrate();
+            }
+            catalog = opened;
+        }
+        return catalog;
+    }
+
+    /** the crawl in a day folder, null if the catalog doesn't know it
+     */
+    @Nullable
+    public synchronized Crawl lookup(@NotNull String dayFolder) {
+        String[] segments = dayFolder.split("[\\\\/]");
+        if (segments.length < 4) {
+            return null;
+        }
+        int n = segments.length;
+        return crawls.get(key(segments[n - 4], segments[n - 3], segments[n - 2], segments[n - 1]));
+    }
+
+    /** adds or replaces a crawl
+     */
+    public synchronized void put(@NotNull Crawl crawl) throws IOException {
+        boolean exists = file.exists();
+        try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(file, true)))) {
+            if (!exists) {
+                out.writeInt(MAGIC);
+            }
+            crawl.write(out);
+        }
+        add(crawl);
+    }
+
+    /** the names of the sub folders of a folder of the tree, in no particular order
+     */
+    @NotNull
+    public synchronized List<String> list(@NotNull File folder) {
+        String root = domainsFolder.getAbsolutePath();
+        String path = folder.getAbsolutePath();
+
+        String key = null;
+        if (path.equalsIgnoreCase(root)) {
+            key = "";
+        } else if (path.regionMatches(true, 0, root + "\\", 0, root.length() + 1)) {
+            key = path.substring(root.length() + 1).toLowerCase(Locale.ROOT);
+        }
+        if (key != null) {
+            // the disk decides what's there: folders deleted by hand are gone, folders the catalog
+            // never saw are listed, only names it doesn't know need a look whether they're folders
+            Map<String, String> known = children.getOrDefault(key, Collections.emptyMap());
+            List<String> names = new ArrayList<>();
+            String[] entries = folder.list();
+            if (entries != null) {
+                for (String name : entries) {
+                    if (known.containsKey(name.toLowerCase(Locale.ROOT)) || new File(folder, name).isDirectory()) {
+                        names.add(name);
+                    }
+                }
+            }
+            return names;
+        }
+
+        List<String> names = new ArrayList<>();
+        File[] files = folder.listFiles(File::isDirectory);
+        if (files != null) {
+            for (File file : files) {
+                names.add(file.getName());
+            }
+        }
+        return names;
+    }
+
+    /** bytes of all files under a folder
+     */
+    public static long sizeOf(@NotNull File folder) {
+        try (Stream<Path> paths = Files.walk(folder.toPath())) {
+            return paths.filter(Files::isRegularFile).mapToLong(p -> p.toFile().length()).sum();
+        } catch (IOException | UncheckedIOException ex) {
+            return 0;
+        }
+    }
+
+    private void load() throws IOException {
+        long valid = 0;
+        try (DataInputStream in = new DataInputStream(new BufferedInputStream(new FileInputStream(file)))) {
+            if (in.readInt() != MAGIC) {
+                throw new IOException("not a catalog: " + file.getName());
+            }
+            valid = 4;
+            while (true) {
+                Crawl crawl = Crawl.read(in);
+                add(crawl);
+                valid += crawl.recordSize;
+            }
+        } catch (EOFException ex) {
+            // end of catalog
+        } catch (IOException ex) {
+            // e.g. a UTFDataFormatException, the records up to it are kept
+            ex.printStackTrace();
+        }
+
+        if (valid == 0) {
+            // not a catalog -> built anew from disk
+            crawls.clear();
+            children.clear();
+            Files.deleteIfExists(file.toPath());
+            migrate();
+            return;
+        }
+
+        // a record cut short or corrupt, e.g. by a crash while it was appended
+        if (valid < file.length()) {
+            try (RandomAccessFile raf = new RandomAccessFile(file, "rw")) {
+                raf.setLength(valid);
+            }
+        }
+    }
+
+    private void add(Crawl crawl) {
+        crawls.put(key(crawl.domain, crawl.year, crawl.month, crawl.day), crawl);
+        String[] names = {crawl.domain, crawl.year, crawl.month, crawl.day};
+        String folder = "";
+        for (String name : names) {
+            children.computeIfAbsent(folder, k -> new HashMap<>()).putIfAbsent(name.toLowerCase(Locale.ROOT), name);
+            folder = folder.isEmpty() ? name.toLowerCase(Locale.ROOT) : folder + "\\" + name.toLowerCase(Locale.ROOT);
+        }
+    }
+
+    /** builds the catalog from the crawls on disk, once
+     */
+    private void migrate() throws IOException {
+        File[] domains = domainsFolder.listFiles(File::isDirectory);
+        if (domains != null) {
+            for (File domain : domains) {
+                for (File year : listFolders(domain)) {
+                    for (File month : listFolders(year)) {
+                        for (File day : listFolders(month)) {
+                            String rootUrl = readLegacyRootUrl(day);
+                            if (rootUrl != null) {
+                                put(legacyCrawl(domain, year, month, day, rootUrl));
+                            }
+                        }
+                    }
+                }
+            }
+        }
+        if (!file.exists()) {
+            try (DataOutputStream out = new DataOutputStream(new FileOutputStream(file))) {
+                out.writeInt(MAGIC);
+            }
+        }
+    }
+
+    private static File[] listFolders(File folder) {
+        File[] folders = folder.listFiles(File::isDirectory);
+        return folders != null ? folders : new File[0];
+    }
+
+    private static Crawl legacyCrawl(File domain, File year, File month, File day, String rootUrl) {
+        List<String> log = readLegacyLog(day);
+        if (log == null || log.size() != 4) {
+            return new Crawl(domain.getName(), year.getName(), month.getName(), day.getName(), rootUrl,
+                    0, 0, 0, "", sizeOf(day), false);
+        }
+
+        long runtime = 0;
+        try {
+            String[] hms = log.get(2).split(":");
+            runtime = Duration.ofHours(Long.parseLong(hms[0])).plusMinutes(Long.parseLong(hms[1]))
+                    .plusSeconds(Long.parseLong(hms[2])).toNanos();
+            return new Crawl(domain.getName(), year.getName(), month.getName(), day.getName(), rootUrl,
+                    Integer.parseInt(log.get(0)), Integer.parseInt(log.get(1)), runtime, log.get(3), sizeOf(day), true);
+        } catch (NumberFormatException | ArrayIndexOutOfBoundsException ex) {
+            return new Crawl(domain.getName(), year.getName(), month.getName(), day.getName(), rootUrl,
+                    0, 0, runtime, log.get(3), sizeOf(day), false);
+        }
+    }
+
+    @Nullable
+    private static String readLegacyRootUrl(File dayFolder) {
+        File inFile = new File(dayFolder.getAbsolutePath() + "\\url.data");
+        try (ObjectInputStream oIn = new ObjectInputStream(new FileInputStream(inFile))) {
+            return (String) oIn.readObject();
+        } catch (IOException | ClassNotFoundException | ClassCastException ex) {
+            return null;
+        }
+    }
+
+    @Nullable
+    private static List<String> readLegacyLog(File dayFolder) {
+        File inFile = new File(dayFolder.getAbsolutePath() + "\\log.data");
+        if (!inFile.exists()) {
+            return null;
+        }
+        List<String> lines = new ArrayList<>();
+        String line;
+
+        try (ObjectInputStream oIn = new ObjectInputStream(new FileInputStream(inFile))) {
+            while ((line = (String) oIn.readObject()) != null) {
+                lines.add(line);
+            }
+        } catch (EOFException ex) {
+            // end of stream
+        } catch (IOException | ClassNotFoundException | ClassCastException ex) {
+            return null;
+        }
+        return lines;
+    }
+
+    private static String key(String domain, String year, String month, String day) {
+        return (domain + "\\" + year + "\\" + month + "\\" + day).toLowerCase(Locale.ROOT);
+    }
+
+    /**
+     * Crawl is the catalog record of one crawl, i.e. one day folder
+     */
+    public static class Crawl {
+        private final String domain;
+        private final String year;
+        private final String month;
+        private final String day;
+        private final String rootUrl;
+        private final int pages;
+        private final int images;
+        private final long runtime;
+        private final String initDate;
+        private final long bytes;
+        private final boolean logged;
+        private int recordSize = 0;
+
+        public Crawl(@NotNull String domain, @NotNull String year, @NotNull String month, @NotNull String day,
+                     @NotNull String rootUrl, int pages, int images, long runtime, @NotNull String initDate,
+                     long bytes, boolean logged) {
+            this.domain = domain;
+            this.year = year;
+            this.month = month;
+            this.day = day;
+            this.rootUrl = rootUrl;
+            this.pages = pages;
+            this.images = images;
+            this.runtime = runtime;
+            this.initDate = initDate;
+            this.bytes = bytes;
+            this.logged = logged;
+        }
+
+        private void write(DataOutputStream out) throws IOException {
+            out.writeUTF(domain);
+            out.writeUTF(year);
+            out.writeUTF(month);
+            out.writeUTF(day);
+            out.writeUTF(rootUrl);
+            out.writeInt(pages);
+            out.writeInt(images);
+            out.writeLong(runtime);
+            out.writeUTF(initDate);
+            out.writeLong(bytes);
+            out.writeBoolean(logged);
+        }
+
+        private static Crawl read(DataInputStream in) throws IOException {
+            Crawl crawl = new Crawl(in.readUTF(), in.readUTF(), in.readUTF(), in.readUTF(), in.readUTF(),
+                    in.readInt(), in.readInt(), in.readLong(), in.readUTF(), in.readLong(), in.readBoolean());
+            crawl.recordSize = utfSize(crawl.domain) + utfSize(crawl.year) + utfSize(crawl.month) + utfSize(crawl.day)
+                    + utfSize(crawl.rootUrl) + 4 + 4 + 8 + utfSize(crawl.initDate) + 8 + 1;
+            return crawl;
+        }
+
+        private static int utfSize(String s) {
+            int size = 2;
+            for (int i = 0; i < s.length(); i++) {
+                char c = s.charAt(i);
+                size += c >= 0x0001 && c <= 0x007F ? 1 : c <= 0x07FF ? 2 : 3;
+            }
+            return size;
+        }
+
+        public String getRootUrl() { return rootUrl; }
+
+        /** the hash naming the root page's html file */
+        public int getRootUrlHash() { return rootUrl.hashCode(); }
+
+        public int getPages() { return pages; }
+
+        public int getImages() { return images; }
+
+        /** nanos the crawl ran for */
+        public long getRuntime() { return runtime; }
+
+        public String getInitDate() { return initDate; }
+
+        /** bytes of the day folder once the crawl was done */
+        public long getBytes() { return bytes; }
+
+        /** false while the crawl runs, or if it never finished */
+        public boolean isLogged() { return logged; }
+
+        /** pages, images, runtime and init date, the lines of the about dialog */
+        public List<String> getLog() {
+            Duration duration = Duration.ofNanos(runtime);
+            return Arrays.asList(
+                    String.format("%d", pages),
+                    String.format("%d", images),
+                    String.format("%02d:%02d:%02d", duration.toHoursPart(), duration.toMinutesPart(), duration.toSecondsPart()),
+                    initDate);
+        }
+    }
+}
@@ -0,0 +1,400 @@
+package io;
+
+import org.jetbrains.annotations.NotNull;
+import org.jsoup.parser.Parser;
+
+import java.io.EOFException;
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.CharBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.CharsetDecoder;
+import java.nio.charset.CodingErrorAction;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.Set;
+import java.util.zip.DataFormatException;
+import java.util.zip.Inflater;
+
+/**
+ * ArchiveReader gives read-only views of snapshots for scanning, without parsing them into a DOM.
+ * A full html file is read into a buffer of the calling thread, a segment record is inflated
+ * straight from the mapped segment into a direct buffer, only deltas are rebuilt by PageStore.
+ * Only the segment is mapped: it is only ever appended to, while html files are replaced by
+ * the next crawl of the day, and a mapped file can't be deleted on Windows.
+ *
+ * Views live in buffers owned by the calling thread and reused by its next call,
+ * use them before reading the next snapshot and never hand them to another thread.
+ */
+public class ArchiveReader {
+    private static final int MIN_BUFFER = 64 * 1024;
+
+    private static final ThreadLocal<ByteBuffer[]> files = ThreadLocal.withInitial(() -> new ByteBuffer[1]);
+    private static final ThreadLocal<ByteBuffer[]> records = ThreadLocal.withInitial(() -> new ByteBuffer[1]);
+    private static final ThreadLocal<CharBuffer[]> chars = ThreadLocal.withInitial(() -> new CharBuffer[1]);
+    private static final ThreadLocal<CharBuffer[]> texts = ThreadLocal.withInitial(() -> new CharBuffer[1]);
+
+    // elements whose content isn't text
+    private static final Set<String> RAW_TEXT = new HashSet<>(Arrays.asList("script", "style", "noscript", "template"));
+    // elements that separate words, as jsoup's Element.text() does
+    private static final Set<String> BLOCKS = new HashSet<>(Arrays.asList(
+            "html", "head", "title", "body", "div", "p", "br", "hr", "li", "ul", "ol", "dl", "dt", "dd",
+            "table", "thead", "tbody", "tfoot", "tr", "td", "th", "caption", "h1", "h2", "h3", "h4", "h5", "h6",
+            "section", "article", "header", "footer", "nav", "aside", "main", "blockquote", "pre", "form",
+            "fieldset", "legend", "option", "figure", "figcaption", "address", "center"));
+
+    private ArchiveReader() {
+        throw new UnsupportedOperationException();
+    }
+
+    /** the UTF-8 bytes of a snapshot
+     */
+    @NotNull
+    public static ByteBuffer bytes(@NotNull File htmlFile) throws IOException {
+        if (htmlFile.exists()) {
+            return read(htmlFile);
+        }
+
+        long[] record = PageStore.recordOf(htmlFile);
+        if (record != null && !PageStore.deltaOf(htmlFile).exists()) {
+            File segmentFile = new File(htmlFile.getAbsoluteFile().getParentFile(), PageStore.SEGMENT_FILE);
+            return readRecord(segmentFile, map(segmentFile, record[0], record[1]));
+        }
+
+        // a delta, PageStore caches what it rebuilds
+        return StandardCharsets.UTF_8.encode(PageStore.read(htmlFile));
+    }
+
+    /** the html of a snapshot, decoded into a buffer of the calling thread
+     */
+    @NotNull
+    public static CharSequence chars(@NotNull File htmlFile) throws IOException {
+        return chars(bytes(htmlFile));
+    }
+
+    /** UTF-8 bytes decoded into a buffer of the calling thread, bytes itself is left as it is
+     */
+    @NotNull
+    public static CharSequence chars(@NotNull ByteBuffer bytes) {
+        bytes = bytes.duplicate();
+        CharsetDecoder decoder = StandardCharsets.UTF_8.newDecoder()
+                .onMalformedInput(CodingErrorAction.REPLACE)
+                .onUnmappableCharacter(CodingErrorAction.REPLACE);
+
+        CharBuffer out = charBuffer(chars, (int) (bytes.remaining() * (double) decoder.maxCharsPerByte()) + 1);
+        decoder.decode(bytes, out, true);
+        decoder.flush(out);
+        return out.flip();
+    }
+
+    /** the visible text of a snapshot: no tags, comments, scripts or styles, whitespace collapsed
+     */
+    @NotNull
+    public static CharSequence text(@NotNull File htmlFile) throws IOException {
+        return text(chars(htmlFile));
+    }
+
+    /** the visible text of a page's html, into a buffer of the calling thread
+     */
+    @NotNull
+    public static CharSequence text(@NotNull CharSequence html) {
+        CharBuffer out = charBuffer(texts, html.length() + 1);
+        int length = html.length();
+        boolean space = true; // at the start, no leading space
+
+        int i = 0;
+        while (i < length) {
+            char c = html.charAt(i);
+            if (c == '<' && skipMarkup(html, i) == i) {
+                space = append(out, c, space); // a '<' in text
+                i++;
+            } else if (c == '<') {
+                int end = skipMarkup(html, i);
+                String tag = tagName(html, i);
+                if (tag != null && BLOCKS.contains(tag) && !space) {
+                    out.put(' ');
+                    space = true;
+                }
+                if (tag != null && RAW_TEXT.contains(tag) && html.charAt(i + 1) != '/') {
+                    end = skipRawText(html, end, tag);
+                }
+                i = end;
+            } else if (c == '&') {
+                int end = i + 1;
+                while (end < length && end - i < 32 && html.charAt(end) != ';' && html.charAt(end) != '<'
+                        && !Character.isWhitespace(html.charAt(end))) {
+                    end++;
+                }
+                boolean reference = end < length && html.charAt(end) == ';';
+                String entity = reference ?
+                        Parser.unescapeEntities(html.subSequence(i, end + 1).toString(), false) : "&";
+                for (int j = 0; j < entity.length(); j++) {
+                    space = append(out, entity.charAt(j), space);
+                }
+                i = reference ? end + 1 : i + 1;
+            } else {
+                space = append(out, c, space);
+                i++;
+            }
+        }
+
+        if (out.position() > 0 && space) {
+            out.position(out.position() - 1);
+        }
+        return out.flip();
+    }
+
+    /** the title of a snapshot, found by scanning its bytes, "" if it has none
+     */
+    @NotNull
+    public static String title(@NotNull File htmlFile) throws IOException {
+        ByteBuffer bytes = bytes(htmlFile);
+
+        // the title belongs to the head, don't scan a whole page for it
+        int start = -1;
+        for (int i = bytes.position(); i < bytes.limit() && start == -1; i++) {
+            if (bytes.get(i) == '<') {
+                if (matches(bytes, i, "<body")) {
+                    return "";
+                }
+                start = matches(bytes, i, "<title") ? i : -1;
+            }
+        }
+        if (start == -1) {
+            return "";
+        }
+        while (start < bytes.limit() && bytes.get(start) != '>') {
+            start++;
+        }
+        int end = indexOf(bytes, "</title", ++start);
+        if (start >= bytes.limit() || end == -1) {
+            return "";
+        }
+
+        ByteBuffer title = bytes.duplicate();
+        title.limit(end).position(start);
+        String text = StandardCharsets.UTF_8.decode(title).toString();
+        return Parser.unescapeEntities(text, false).replaceAll("\\s+", " ").trim();
+    }
+
+    /** the content of a file, read into a heap buffer of the calling thread
+     */
+    private static ByteBuffer read(File file) throws IOException {
+        try (FileChannel channel = FileChannel.open(file.toPath(), StandardOpenOption.READ)) {
+            long size = channel.size();
+            if (size > 1 << 30) {
+                throw new IOException(file.getName() + " is too large");
+            }
+            ByteBuffer out = byteBuffer(files, (int) size, false);
+            out.limit((int) size);
+            while (out.hasRemaining() && channel.read(out) != -1);
+            return out.flip();
+        }
+    }
+
+    private static ByteBuffer map(File file, long position, long size) throws IOException {
+        try (FileChannel channel = FileChannel.open(file.toPath(), StandardOpenOption.READ)) {
+            return channel.map(FileChannel.MapMode.READ_ONLY, position, size);
+        }
+    }
+
+    /** inflates one gzip member, see WarcWriter, and returns the html of the record in it
+     */
+    private static ByteBuffer readRecord(File segmentFile, ByteBuffer member) throws IOException {
+        // gzip header: magic, method, flags, mtime, xfl, os, then optional fields
+        if (member.remaining() < 10 || (member.get() & 0xff) != 0x1f || (member.get() & 0xff) != 0x8b) {
+            throw new IOException("corrupt record in " + segmentFile.getName());
+        }
+        member.get();
+        int flags = member.get();
+        member.position(member.position() + 6);
+        if ((flags & 4) != 0) {
+            int extra = (member.get() & 0xff) | (member.get() & 0xff) << 8;
+            member.position(member.position() + extra);
+        }
+        if ((flags & 8) != 0) {
+            while (member.get() != 0);
+        }
+        if ((flags & 16) != 0) {
+            while (member.get() != 0);
+        }
+        if ((flags & 2) != 0) {
+            member.position(member.position() + 2);
+        }
+
+        // the uncompressed size is the member's trailing ISIZE
+        int size = member.getInt(member.limit() - 4);
+        size = Integer.reverseBytes(size);
+        ByteBuffer out = byteBuffer(records, size, true);
+        out.limit(size);
+
+        Inflater inflater = new Inflater(true);
+        try {
+            inflater.setInput(member);
+            while (out.hasRemaining() && !inflater.finished()) {
+                if (inflater.inflate(out) == 0 && (inflater.needsInput() || inflater.needsDictionary())) {
+                    throw new EOFException("truncated record in " + segmentFile.getName());
+                }
+            }
+        } catch (DataFormatException ex) {
+            throw new IOException("corrupt record in " + segmentFile.getName(), ex);
+        } finally {
+            inflater.end();
+        }
+        out.flip();
+
+        // WARC headers, then an empty line, then Content-Length bytes of html
+        int headerEnd = indexOf(out, "\r\n\r\n", 0);
+        if (headerEnd == -1) {
+            throw new IOException("corrupt record in " + segmentFile.getName());
+        }
+        ByteBuffer headerBytes = out.duplicate();
+        headerBytes.limit(headerEnd);
+        int contentLength = -1;
+        for (String header : StandardCharsets.UTF_8.decode(headerBytes).toString().split("\r\n")) {
+            if (header.regionMatches(true, 0, "Content-Length:", 0, 15)) {
+                contentLength = Integer.parseInt(header.substring(15).trim());
+            }
+        }
+        if (contentLength < 0 || headerEnd + 4 + contentLength > out.limit()) {
+            throw new IOException("corrupt record in " + segmentFile.getName());
+        }
+
+        out.limit(headerEnd + 4 + contentLength).position(headerEnd + 4);
+        return out.slice();
+    }
+
+    /** the calling thread's buffer, grown to at least capacity, cleared
+     */
+    private static ByteBuffer byteBuffer(ThreadLocal<ByteBuffer[]> local, int capacity, boolean direct) {
+        ByteBuffer[] holder = local.get();
+        if (holder[0] == null || holder[0].capacity() < capacity) {
+            int bytes = Math.max(MIN_BUFFER, Integer.highestOneBit(capacity - 1) << 1);
+            holder[0] = direct ? ByteBuffer.allocateDirect(bytes) : ByteBuffer.allocate(bytes);
+        }
+        return holder[0].clear();
+    }
+
+    private static CharBuffer charBuffer(ThreadLocal<CharBuffer[]> local, int capacity) {
+        CharBuffer[] holder = local.get();
+        if (holder[0] == null || holder[0].capacity() < capacity) {
+            int chars = Math.max(MIN_BUFFER, Integer.highestOneBit(capacity - 1) << 1);
+            holder[0] = ByteBuffer.allocateDirect(chars * 2).asCharBuffer();
+        }
+        return holder[0].clear();
+    }
+
+    private static boolean append(CharBuffer out, char c, boolean space) {
+        if (Character.isWhitespace(c) || c == '\u00a0') {
+            if (!space) {
+                out.put(' ');
+            }
+            return true;
+        }
+        out.put(c);
+        return false;
+    }
+
+    /** the lower case name of the tag at start, null for comments, doctypes and a lone '<'
+     */
+    private static String tagName(CharSequence html, int start) {
+        int i = start + 1;
+        if (i < html.length() && html.charAt(i) == '/') {
+            i++;
+        }
+        int nameStart = i;
+        while (i < html.length() && Character.isLetterOrDigit(html.charAt(i))) {
+            i++;
+        }
+        return i == nameStart || !Character.isLetter(html.charAt(nameStart)) ? null :
+                html.subSequence(nameStart, i).toString().toLowerCase();
+    }
+
+    /** the index after the comment or tag at start, start if the '<' there is text
+     */
+    private static int skipMarkup(CharSequence html, int start) {
+        int length = html.length();
+        if (startsWith(html, start, "<!--")) {
+            int end = indexOf(html, "-->", start + 4);
+            return end == -1 ? length : end + 3;
+        }
+        if (start + 1 >= length || !(Character.isLetter(html.charAt(start + 1))
+                || html.charAt(start + 1) == '/' || html.charAt(start + 1) == '!' || html.charAt(start + 1) == '?')) {
+            return start;
+        }
+
+        char quote = 0;
+        for (int i = start + 1; i < length; i++) {
+            char c = html.charAt(i);
+            if (quote != 0) {
+                if (c == quote) {
+                    quote = 0;
+                }
+            } else if (c == '"' || c == '\'') {
+                quote = c;
+            } else if (c == '>') {
+                return i + 1;
+            }
+        }
+        return length;
+    }
+
+    private static int skipRawText(CharSequence html, int start, String tag) {
+        int i = start;
+        while ((i = indexOf(html, "</", i)) != -1) {
+            if (html.length() >= i + 2 + tag.length()
+                    && html.subSequence(i + 2, i + 2 + tag.length()).toString().equalsIgnoreCase(tag)) {
+                return skipMarkup(html, i);
+            }
+            i += 2;
+        }
+        return html.length();
+    }
+
+    private static boolean startsWith(CharSequence html, int start, String prefix) {
+        if (start + prefix.length() > html.length()) {
+            return false;
+        }
+        for (int i = 0; i < prefix.length(); i++) {
+            if (html.charAt(start + i) != prefix.charAt(i)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private static int indexOf(CharSequence html, String target, int from) {
+        for (int i = from; i + target.length() <= html.length(); i++) {
+            if (html.charAt(i) == target.charAt(0) && startsWith(html, i, target)) {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    /** the absolute index of target in bytes from 'from' on, ASCII case insensitive
+     */
+    private static int indexOf(ByteBuffer bytes, String target, int from) {
+        for (int i = from; i + target.length() <= bytes.limit(); i++) {
+            if (matches(bytes, i, target)) {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    private static boolean matches(ByteBuffer bytes, int start, String target) {
+        if (start + target.length() > bytes.limit()) {
+            return false;
+        }
+        for (int j = 0; j < target.length(); j++) {
+            if (Character.toLowerCase((char) (bytes.get(start + j) & 0xff)) != target.charAt(j)) {
+                return false;
+            }
+        }
+        return true;
+    }
+}
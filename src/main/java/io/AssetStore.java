@@ -0,0 +1,220 @@
+package io;
+
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+import utils.CrawlUtils;
+
+import java.io.*;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.ReadableByteChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * AssetStore is the content addressed store shared by all crawls. Every distinct css file or image
+ * is kept once, named by the SHA-256 of its bytes, and day folders point into it through hard links
+ * (copies where the file system can't link). Per url, the store remembers the blob last downloaded
+ * along with its ETag / Last-Modified, so an unchanged asset can be revalidated instead of downloaded.
+ *
+ * Reference counts tell how many day folder files point at a blob, each day folder lists its own
+ * references in assets\asset.manifest so that they can be released should the crawl be deleted.
+ */
+public class AssetStore {
+    private static final String BLOBS = "\\blobs";
+    private static final String STORE_DATA = "\\store.data";
+    private static final String MANIFEST = "\\asset.manifest";
+    private static final Map<String, AssetStore> stores = new HashMap<>();
+
+    private final File folder;
+    private final HashMap<String, Asset> assets;   // url -> last version downloaded
+    private final HashMap<String, Integer> references;   // hash -> number of day folder files
+
+    private AssetStore(File folder, HashMap<String, Asset> assets, HashMap<String, Integer> references) {
+        this.folder = folder;
+        this.assets = assets;
+        this.references = references;
+    }
+
+    /** one store per folder and process, shared by every crawler writing to it
+     */
+    @SuppressWarnings("unchecked")
+    public static AssetStore open(@NotNull File folder) throws IOException {
+        synchronized (stores) {
+            AssetStore store = stores.get(folder.getAbsolutePath());
+            if (store != null) {
+                return store;
+            }
+
+            File blobs = new File(folder.getAbsolutePath() + BLOBS);
+            if (!blobs.exists() && !blobs.mkdirs()) {
+                throw new IOException("Failed to init dir");
+            }
+
+            HashMap<String, Asset> assets = new HashMap<>();
+            HashMap<String, Integer> references = new HashMap<>();
+            File data = new File(folder.getAbsolutePath() + STORE_DATA);
+            if (data.exists()) {
+                try (ObjectInputStream oIn = new ObjectInputStream(new BufferedInputStream(new FileInputStream(data)))) {
+                    assets = (HashMap<String, Asset>) oIn.readObject();
+                    references = (HashMap<String, Integer>) oIn.readObject();
+                }
+                catch (ClassNotFoundException | ClassCastException ex) {
+                    throw new IOException("corrupt " + data.getName(), ex);
+                }
+            }
+
+            store = new AssetStore(folder, assets, references);
+            stores.put(folder.getAbsolutePath(), store);
+            return store;
+        }
+    }
+
+    /** the version of url stored last, null if url has never been stored or its blob is gone
+     */
+    @Nullable
+    public synchronized Asset lookup(@NotNull String url) {
+        Asset asset = assets.get(url);
+        return asset != null && getBlob(asset.hash).exists() ? asset : null;
+    }
+
+    /** streams in into the store, hashing on the way, the blob is only kept if its content is new
+     */
+    public Asset store(@NotNull String url, @NotNull ReadableByteChannel in,
+                       @Nullable String eTag, @Nullable String lastModified) throws IOException {
+        File blobs = new File(folder.getAbsolutePath() + BLOBS);
+        Path tmp = Files.createTempFile(blobs.toPath(), "blob", ".tmp");
+        String hash;
+
+        try {
+            MessageDigest digest = MessageDigest.getInstance("SHA-256");
+            ByteBuffer buffer = ByteBuffer.allocateDirect(64 * 1024);
+
+            try (FileChannel out = FileChannel.open(tmp, StandardOpenOption.WRITE)) {
+                while (in.read(buffer) != -1) {
+                    buffer.flip();
+                    digest.update(buffer.duplicate());
+                    while (buffer.hasRemaining()) {
+                        out.write(buffer);
+                    }
+                    buffer.clear();
+                }
+            }
+            hash = CrawlUtils.toHex(digest.digest());
+
+            File blob = getBlob(hash);
+            synchronized (this) {
+                if (!blob.exists()) {
+                    File shard = blob.getParentFile();
+                    if (!shard.exists() && !shard.mkdir()) {
+                        throw new IOException("Failed to init dir");
+                    }
+                    Files.move(tmp, blob.toPath());
+                }
+            }
+        }
+        catch (NoSuchAlgorithmException ex) {
+            throw new IOException(ex);
+        }
+        finally {
+            Files.deleteIfExists(tmp);
+        }
+
+        Asset asset = new Asset(hash, eTag, lastModified);
+        synchronized (this) {
+            assets.put(url, asset);
+        }
+        return asset;
+    }
+
+    /** makes target (a file in a day folder's assets) point at the blob of asset
+     */
+    public void link(@NotNull Asset asset, @NotNull File target, @NotNull File assetsFolder) throws IOException {
+        IO.linkOrCopy(getBlob(asset.hash), target);
+
+        synchronized (this) {
+            references.merge(asset.hash, 1, Integer::sum);
+            try (Writer writer = new BufferedWriter(new FileWriter(assetsFolder.getAbsolutePath() + MANIFEST, true))) {
+                writer.write(asset.hash + "\t" + target.getName() + "\n");
+            }
+        }
+    }
+
+    /** drops the references of a day folder, blobs no longer referenced are deleted
+     */
+    public synchronized void release(@NotNull File assetsFolder) throws IOException {
+        File manifest = new File(assetsFolder.getAbsolutePath() + MANIFEST);
+        if (!manifest.exists()) {
+            return;
+        }
+
+        List<String> released = new ArrayList<>();
+        try (BufferedReader reader = new BufferedReader(new FileReader(manifest))) {
+            String line;
+            while ((line = reader.readLine()) != null) {
+                String hash = line.split("\t")[0];
+                if (references.merge(hash, -1, Integer::sum) <= 0) {
+                    references.remove(hash);
+                    released.add(hash);
+                }
+            }
+        }
+
+        for (String hash : released) {
+            Files.deleteIfExists(getBlob(hash).toPath());
+        }
+        assets.values().removeIf(asset -> !references.containsKey(asset.hash));
+        Files.delete(manifest.toPath());
+        save();
+    }
+
+    /** writes the url and reference tables, called once a crawl is done
+     */
+    public synchronized void save() throws IOException {
+        File data = new File(folder.getAbsolutePath() + STORE_DATA);
+        File tmp = new File(data.getAbsolutePath() + ".tmp");
+
+        try (ObjectOutputStream oOut = new ObjectOutputStream(new BufferedOutputStream(new FileOutputStream(tmp)))) {
+            oOut.writeObject(assets);
+            oOut.writeObject(references);
+        }
+        Files.move(tmp.toPath(), data.toPath(), StandardCopyOption.REPLACE_EXISTING);
+    }
+
+    private File getBlob(String hash) {
+        return new File(folder.getAbsolutePath() + BLOBS + "\\" + hash.substring(0, 2) + "\\" + hash);
+    }
+
+    /**
+     * Asset is a stored version of a url
+     */
+    public static class Asset implements Serializable {
+        private static final long serialVersionUID = 1L;
+
+        private final String hash;
+        private final String eTag;
+        private final String lastModified;
+
+        private Asset(String hash, String eTag, String lastModified) {
+            this.hash = hash;
+            this.eTag = eTag;
+            this.lastModified = lastModified;
+        }
+
+        public String getHash() { return hash; }
+
+        @Nullable
+        public String getETag() { return eTag; }
+
+        @Nullable
+        public String getLastModified() { return lastModified; }
+    }
+}
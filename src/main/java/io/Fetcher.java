@@ -0,0 +1,94 @@
+package io;
+
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.Charset;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * Fetcher GETs urls for a crawl: pages, robots.txt, stylesheets and images all go through the crawl's one
+ * fetcher, so that an implementation can share connections between them, see JsoupFetcher and HttpClientFetcher.
+ * A response is returned whatever its status, the future fails on network errors only.
+ */
+public interface Fetcher {
+
+    /** GETs url, the body is read in full before the future completes
+     */
+    @NotNull
+    CompletableFuture<Response> fetch(@NotNull String url, @NotNull Map<String, String> headers, int timeoutMillis);
+
+    /** GETs url, the future completes once the headers are in and the body is read from the response as it arrives
+     */
+    @NotNull
+    CompletableFuture<Response> stream(@NotNull String url, @NotNull Map<String, String> headers, int timeoutMillis);
+
+    /** waits for a response, with the IOException it failed with, if any
+     */
+    @NotNull
+    static Response await(@NotNull CompletableFuture<Response> response) throws IOException {
+        try {
+            return response.join();
+        } catch (CompletionException ex) {
+            if (ex.getCause() instanceof IOException) {
+                throw (IOException) ex.getCause();
+            }
+            throw ex;
+        }
+    }
+
+    /**
+     * Response is the status, headers and (decoded) body of a GET
+     */
+    interface Response {
+        Pattern CHARSET = Pattern.compile("(?i)\\bcharset=\\s*\"?([^\\s;\"]+)");
+
+        int statusCode();
+
+        /** the url after redirects */
+        @NotNull
+        String url();
+
+        @Nullable
+        String header(@NotNull String name);
+
+        /** the body, content encoding undone, readable once */
+        @NotNull
+        InputStream bodyStream() throws IOException;
+
+        @NotNull
+        default byte[] bodyAsBytes() throws IOException {
+            try (InputStream in = bodyStream()) {
+                return in.readAllBytes();
+            }
+        }
+
+        /** releases a body that won't be read, e.g. of a 304 or an error, so that its connection can be reused */
+        void discard() throws IOException;
+
+        /** the charset of the Content-Type header, null if it names none (or one this runtime lacks)
+         */
+        @Nullable
+        default String charset() {
+            String contentType = header("Content-Type");
+            if (contentType == null) {
+                return null;
+            }
+            Matcher matcher = CHARSET.matcher(contentType);
+            if (!matcher.find()) {
+                return null;
+            }
+            try {
+                return Charset.isSupported(matcher.group(1)) ? matcher.group(1) : null;
+            } catch (IllegalArgumentException ex) {
+                return null;
+            }
+        }
+    }
+}
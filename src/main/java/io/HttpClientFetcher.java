@@ -0,0 +1,145 @@
+package io;
+
+import org.jetbrains.annotations.NotNull;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.PushbackInputStream;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.time.Duration;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.Inflater;
+import java.util.zip.InflaterInputStream;
+
+/**
+ * HttpClientFetcher fetches asynchronously with a single java.net.http.HttpClient: connections are kept alive
+ * and reused per host, HTTP/2 is negotiated where the server offers it (one connection per host then carries
+ * every request in flight), and bodies are asked for gzip or deflate compressed, deflate zlib wrapped or raw
+ * as some servers send it.
+ * No thread waits on a response, they complete on the client's own threads.
+ */
+public class HttpClientFetcher implements Fetcher {
+    private static final String ACCEPT_ENCODING = "gzip, deflate";
+
+    private final HttpClient client;
+
+    public HttpClientFetcher() {
+        client = HttpClient.newBuilder()
+                .version(HttpClient.Version.HTTP_2)
+                .followRedirects(HttpClient.Redirect.NORMAL)
+                .connectTimeout(Duration.ofSeconds(30))
+                .build();
+    }
+
+    @NotNull
+    @Override
+    public CompletableFuture<Fetcher.Response> fetch(@NotNull String url, @NotNull Map<String, String> headers, int timeoutMillis) {
+        return send(url, headers, timeoutMillis, HttpResponse.BodyHandlers.ofByteArray(), ByteArrayInputStream::new);
+    }
+
+    @NotNull
+    @Override
+    public CompletableFuture<Fetcher.Response> stream(@NotNull String url, @NotNull Map<String, String> headers, int timeoutMillis) {
+        return send(url, headers, timeoutMillis, HttpResponse.BodyHandlers.ofInputStream(), in -> in);
+    }
+
+    private <T> CompletableFuture<Fetcher.Response> send(String url, Map<String, String> headers, int timeoutMillis,
+                                                         HttpResponse.BodyHandler<T> handler, BodyStream<T> body) {
+        HttpRequest request;
+        try {
+            HttpRequest.Builder builder = HttpRequest.newBuilder(URI.create(url))
+                    .timeout(Duration.ofMillis(timeoutMillis))
+                    .header("Accept-Encoding", ACCEPT_ENCODING)
+                    .GET();
+            headers.forEach(builder::setHeader);
+            request = builder.build();
+        } catch (IllegalArgumentException ex) {
+            // not a url the client takes, e.g. an unsupported scheme
+            return CompletableFuture.failedFuture(new IOException(ex.getMessage(), ex));
+        }
+        return client.sendAsync(request, handler).thenApply(response -> new Response<>(response, body));
+    }
+
+    private interface BodyStream<T> {
+        InputStream open(T body) throws IOException;
+    }
+
+    private static class Response<T> implements Fetcher.Response {
+        private final HttpResponse<T> response;
+        private final BodyStream<T> body;
+
+        private Response(HttpResponse<T> response, BodyStream<T> body) {
+            this.response = response;
+            this.body = body;
+        }
+
+        @Override
+        public int statusCode() { return response.statusCode(); }
+
+        @NotNull
+        @Override
+        public String url() { return response.uri().toString(); }
+
+        @Override
+        public String header(@NotNull String name) { return response.headers().firstValue(name).orElse(null); }
+
+        /** decompressed on the reading thread, not on the client's */
+        @NotNull
+        @Override
+        public InputStream bodyStream() throws IOException {
+            InputStream in = body.open(response.body());
+            String encoding = header("Content-Encoding");
+            if (encoding == null) {
+                return in;
+            }
+            switch (encoding.trim().toLowerCase(Locale.ROOT)) {
+                case "gzip":
+                case "x-gzip":
+                    return new GZIPInputStream(in);
+                case "deflate":
+                    return inflate(in);
+                default:
+                    return in;
+            }
+        }
+
+        /** the raw body, not decoded, closing it hands the connection back */
+        @Override
+        public void discard() throws IOException {
+            body.open(response.body()).close();
+        }
+
+        /** "deflate" is meant to be zlib wrapped, some servers send it raw, told apart by the zlib header
+         */
+        private static InputStream inflate(InputStream in) throws IOException {
+            PushbackInputStream head = new PushbackInputStream(in, 2);
+            byte[] bytes = new byte[2];
+            int length = head.readNBytes(bytes, 0, 2);
+            head.unread(bytes, 0, length);
+
+            boolean zlib = length == 2 && (bytes[0] & 0x0f) == 8
+                    && ((bytes[0] & 0xff) << 8 | (bytes[1] & 0xff)) % 31 == 0;
+            if (zlib) {
+                return new InflaterInputStream(head);
+            }
+            Inflater inflater = new Inflater(true);
+            return new InflaterInputStream(head, inflater) {
+                @Override
+                public void close() throws IOException {
+                    try {
+                        super.close();
+                    } finally {
+                        inflater.end(); // not the stream's own inflater, it isn't ended by close
+                    }
+                }
+            };
+        }
+    }
+}
@@ -3,45 +3,20 @@ package io;
 import org.jetbrains.annotations.NotNull;
 import org.jetbrains.annotations.Nullable;
 import java.io.*;
-import java.nio.Buffer;
-import java.util.ArrayList;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
 import java.util.List;
 
 public class IO {
     private final static String initPath = "Files\\init.data";
     private final static File   initFile = new File(initPath);
 
-    public static void writeRootUrl(String rootPage, String pathToFolder) {
-        String extension = "\\url.data";
-        File outFile = new File(pathToFolder + extension);
-
-        try (ObjectOutputStream oOut = new ObjectOutputStream(new FileOutputStream(outFile)))
-        {
-            oOut.writeObject(rootPage);
-        }
-        catch (IOException ex) {
-            ex.printStackTrace();
-        }
-    }
-
-
+    /** the root url of the crawl in a day folder, null if the catalog doesn't know it
+     */
+    @Nullable
     public static String readRootUrl(String pathToFolder) {
-        String extension = "\\url.data";
-        File inFile = new File(pathToFolder + extension);
-        String line = null;
-
-        try (ObjectInputStream oIn = new ObjectInputStream(new FileInputStream(inFile)))
-        {
-            line = (String) oIn.readObject();
-        }
-        catch (EOFException | ClassNotFoundException ex) {
-            // end of stream
-        }
-        catch (IOException ex) {
-            ex.printStackTrace();
-        }
-
-        return line;
+        ArchiveCatalog.Crawl crawl = lookup(pathToFolder);
+        return crawl != null ? crawl.getRootUrl() : null;
     }
 
 
@@ -83,49 +58,39 @@ public class IO {
         }
     }
 
-    public static boolean writeLog(String path, @NotNull List<String> log) {
-        String extension = "\\log.data";
-        File outFile = new File(path + extension);
+    /** pages, images, runtime and init date of the crawl in a day folder, null if it was never logged
+     */
+    @Nullable
+    public static List<String> readLog(String path) {
+        ArchiveCatalog.Crawl crawl = lookup(path);
+        return crawl != null && crawl.isLogged() ? crawl.getLog() : null;
+    }
 
-        try (ObjectOutputStream oOut = new ObjectOutputStream(new FileOutputStream(outFile)))
-        {
-            for (String line : log)
-                oOut.writeObject(line);
+    @Nullable
+    private static ArchiveCatalog.Crawl lookup(String dayFolder) {
+        try {
+            return ArchiveCatalog.open().lookup(dayFolder);
         }
         catch (IOException ex) {
             ex.printStackTrace();
-            return false;
+            return null;
         }
-
-        return true;
     }
 
-    @Nullable
-    public static List<String> readLog(String path) {
-        String extension = "\\log.data";
-        File inFile = new File(path + extension);
-        if (!inFile.exists()) {
-            return null;
+    /** makes target a hard link to source, or a copy where the file system can't link,
+     * nothing to do if they are the same file - deleting target would delete source
+     */
+    public static void linkOrCopy(File source, File target) throws IOException {
+        if (source.getAbsoluteFile().equals(target.getAbsoluteFile())) {
+            return;
         }
-        String line;
-        List<String> lines = new ArrayList<>();
-
-        try (ObjectInputStream oIn = new ObjectInputStream(new FileInputStream(inFile)))
-        {
-            while ((line = (String) oIn.readObject()) != null)
-                lines.add(line);
+        // a new link, never a write through an old one into another day's snapshot
+        Files.deleteIfExists(target.toPath());
+        try {
+            Files.createLink(target.toPath(), source.toPath());
         }
-
-        catch (EOFException | ClassNotFoundException ex) {
-            // end of stream
-        }
-
-        catch (IOException ex) {
-            ex.printStackTrace();
-            return null;
+        catch (UnsupportedOperationException | IOException ex) {
+            Files.copy(source.toPath(), target.toPath(), StandardCopyOption.REPLACE_EXISTING);
         }
-
-        return lines;
     }
-
-}
\ No newline at end of file
+}
@@ -0,0 +1,433 @@
+package io;
+
+import org.jetbrains.annotations.Nullable;
+import utils.TextUtils;
+
+import java.io.*;
+import java.nio.channels.Channels;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.util.*;
+
+/**
+ * IndexSegment is an immutable, on disk inverted index over a set of archived html documents.
+ * Only the document table and the term dictionary are held in memory, postings are read on demand.
+ *
+ * layout: header | documents | postings | dictionary | dictionary offset
+ */
+public class IndexSegment implements Closeable {
+    private static final int MAGIC = 0x41494458; // AIDX
+    private static final int VERSION = 1;
+    private static final int MAX_TITLE_LENGTH = 1024;
+
+    private final RandomAccessFile file;
+    private final String[] docNames;
+    private final String[] docTitles;
+    private final String[] terms;
+    private final long[] offsets;
+    private final int[] lengths;
+
+    private IndexSegment(RandomAccessFile file, String[] docNames, String[] docTitles,
+                         String[] terms, long[] offsets, int[] lengths) {
+        this.file = file;
+        this.docNames = docNames;
+        this.docTitles = docTitles;
+        this.terms = terms;
+        this.offsets = offsets;
+        this.lengths = lengths;
+    }
+
+    public static IndexSegment open(File segmentFile) throws IOException {
+        RandomAccessFile file = new RandomAccessFile(segmentFile, "r");
+
+        try {
+            DataInputStream in = new DataInputStream(new BufferedInputStream(Channels.newInputStream(file.getChannel())));
+
+            if (in.readInt() != MAGIC || in.readInt() != VERSION) {
+                throw new IOException("not an index segment: " + segmentFile);
+            }
+
+            int docCount = in.readInt();
+            String[] docNames = new String[docCount];
+            String[] docTitles = new String[docCount];
+            for (int i = 0; i < docCount; i++) {
+                docNames[i] = in.readUTF();
+                docTitles[i] = in.readUTF();
+            }
+
+            file.seek(file.length() - Long.BYTES);
+            long dictionaryOffset = file.readLong();
+            file.seek(dictionaryOffset);
+            in = new DataInputStream(new BufferedInputStream(Channels.newInputStream(file.getChannel())));
+
+            int termCount = in.readInt();
+            String[] terms = new String[termCount];
+            long[] offsets = new long[termCount];
+            int[] lengths = new int[termCount];
+            for (int i = 0; i < termCount; i++) {
+                terms[i] = in.readUTF();
+                offsets[i] = in.readLong();
+                lengths[i] = in.readInt();
+            }
+
+            return new IndexSegment(file, docNames, docTitles, terms, offsets, lengths);
+        }
+        catch (IOException ex) {
+            file.close();
+            throw ex;
+        }
+    }
+
+    public int getDocCount() { return docNames.length; }
+
+    public String getDocName(int docId) { return docNames[docId]; }
+
+    public String getDocTitle(int docId) { return docTitles[docId]; }
+
+    /** returns the postings of term, or null if no document in this segment contains it
+     */
+    @Nullable
+    public Postings getPostings(String term) throws IOException {
+        int index = Arrays.binarySearch(terms, term);
+        return index < 0 ? null : read(index);
+    }
+
+    /** returns the postings of every term starting with prefix as one list, or null if no document contains any.
+     * the positions of a document are those of all of its terms with that prefix
+     */
+    @Nullable
+    public Postings getPrefixPostings(String prefix) throws IOException {
+        int first = Arrays.binarySearch(terms, prefix);
+        if (first < 0) {
+            first = -first - 1;
+        }
+        int last = first;
+        while (last < terms.length && terms[last].startsWith(prefix)) {
+            last++;
+        }
+
+        if (first == last) {
+            return null;
+        }
+        if (last - first == 1) {
+            return read(first);
+        }
+
+        TreeMap<Integer, IntList> merged = new TreeMap<>();
+        for (int index = first; index < last; index++) {
+            Postings postings = read(index);
+            for (int i = 0; i < postings.size(); i++) {
+                IntList positions = merged.computeIfAbsent(postings.getDocId(i), k -> new IntList());
+                for (int position : postings.getPositions(i)) {
+                    positions.add(position);
+                }
+            }
+        }
+
+        int[] docIds = new int[merged.size()];
+        int[][] positions = new int[merged.size()][];
+        int i = 0;
+        for (Map.Entry<Integer, IntList> entry : merged.entrySet()) {
+            docIds[i] = entry.getKey();
+            // a position holds a single term, the lists never share one
+            positions[i] = Arrays.copyOf(entry.getValue().values, entry.getValue().size);
+            Arrays.sort(positions[i]);
+            i++;
+        }
+        return new Postings(docIds, positions);
+    }
+
+    private Postings read(int index) throws IOException {
+        byte[] bytes = new byte[lengths[index]];
+        synchronized (file) {
+            file.seek(offsets[index]);
+            file.readFully(bytes);
+        }
+
+        return Postings.decode(bytes);
+    }
+
+    @Override
+    public void close() throws IOException {
+        file.close();
+    }
+
+    /**
+     * Postings holds, for a single term, the ids of all documents containing it
+     * and the term positions within each of those documents.
+     */
+    public static class Postings {
+        private final int[] docIds;
+        private final int[][] positions;
+
+        private Postings(int[] docIds, int[][] positions) {
+            this.docIds = docIds;
+            this.positions = positions;
+        }
+
+        public int size() { return docIds.length; }
+
+        public int getDocId(int i) { return docIds[i]; }
+
+        public int[] getPositions(int i) { return positions[i]; }
+
+        /** returns the index of docId in this list, or a negative value if absent
+         */
+        public int indexOf(int docId) { return Arrays.binarySearch(docIds, docId); }
+
+        private static Postings decode(byte[] bytes) {
+            int[] cursor = new int[1];
+            int size = readVarInt(bytes, cursor);
+            int[] docIds = new int[size];
+            int[][] positions = new int[size][];
+            int docId = 0;
+
+            for (int i = 0; i < size; i++) {
+                docId += readVarInt(bytes, cursor);
+                docIds[i] = docId;
+                int[] current = new int[readVarInt(bytes, cursor)];
+                int position = 0;
+                for (int j = 0; j < current.length; j++) {
+                    position += readVarInt(bytes, cursor);
+                    current[j] = position;
+                }
+                positions[i] = current;
+            }
+
+            return new Postings(docIds, positions);
+        }
+    }
+
+    /**
+     * Builder collects documents in memory and writes them as a single segment.
+     */
+    public static class Builder {
+        private final List<String> docNames = new ArrayList<>();
+        private final List<String> docTitles = new ArrayList<>();
+        private final Map<String, IntList> postings = new HashMap<>();
+
+        /** tokenizes text and adds it as the next document, returns its doc id
+         */
+        public int addDocument(String name, String title, CharSequence text) {
+            int docId = docNames.size();
+            docNames.add(name);
+            docTitles.add(title.length() > MAX_TITLE_LENGTH ? title.substring(0, MAX_TITLE_LENGTH) : title);
+
+            Map<String, IntList> docPositions = new HashMap<>();
+            TextUtils.tokenize(text, (term, position) -> {
+                // still found by the words it starts with
+                if (term.length() > TextUtils.MAX_TERM_LENGTH) {
+                    term = term.substring(0, TextUtils.MAX_TERM_LENGTH);
+                }
+                docPositions.computeIfAbsent(term, k -> new IntList()).add(position);
+            });
+
+            for (Map.Entry<String, IntList> entry : docPositions.entrySet()) {
+                IntList list = postings.computeIfAbsent(entry.getKey(), k -> new IntList());
+                list.add(docId);
+                list.add(entry.getValue().size());
+                list.addAll(entry.getValue());
+            }
+
+            return docId;
+        }
+
+        public int getDocCount() { return docNames.size(); }
+
+        public void write(File target) throws IOException {
+            String[] sortedTerms = postings.keySet().toArray(new String[0]);
+            Arrays.sort(sortedTerms);
+            IndexSegment.write(target, docNames, docTitles, sortedTerms, postings::get);
+        }
+    }
+
+    /** merges segments into a single segment written to target, postings are merged one term at a time.
+     * segments are expected oldest first, a document found in several segments is kept from the newest one
+     */
+    public static void merge(List<IndexSegment> segments, File target) throws IOException {
+        List<String> docNames = new ArrayList<>();
+        List<String> docTitles = new ArrayList<>();
+        TreeSet<String> allTerms = new TreeSet<>();
+        Map<String, Integer> newest = new HashMap<>();
+        int[][] docMap = new int[segments.size()][];
+
+        for (int i = 0; i < segments.size(); i++) {
+            for (String docName : segments.get(i).docNames) {
+                newest.put(docName, i);
+            }
+        }
+
+        for (int i = 0; i < segments.size(); i++) {
+            IndexSegment segment = segments.get(i);
+            docMap[i] = new int[segment.docNames.length];
+            for (int docId = 0; docId < segment.docNames.length; docId++) {
+                if (newest.get(segment.docNames[docId]) == i) {
+                    docMap[i][docId] = docNames.size();
+                    docNames.add(segment.docNames[docId]);
+                    docTitles.add(segment.docTitles[docId]);
+                } else {
+                    docMap[i][docId] = -1;
+                }
+            }
+            allTerms.addAll(Arrays.asList(segment.terms));
+        }
+
+        write(target, docNames, docTitles, allTerms.toArray(new String[0]), term -> {
+            IntList merged = new IntList();
+            for (int i = 0; i < segments.size(); i++) {
+                Postings current = segments.get(i).getPostings(term);
+                if (current == null) {
+                    continue;
+                }
+                for (int j = 0; j < current.size(); j++) {
+                    int docId = docMap[i][current.getDocId(j)];
+                    if (docId == -1) {
+                        continue;
+                    }
+                    merged.add(docId);
+                    merged.add(current.getPositions(j).length);
+                    for (int position : current.getPositions(j)) {
+                        merged.add(position);
+                    }
+                }
+            }
+            return merged;
+        });
+    }
+
+    private interface PostingsSource {
+
+        IntList get(String term) throws IOException;
+    }
+
+    /** writes a segment to a temporary file first, then moves it in place
+     */
+    private static void write(File target, List<String> docNames, List<String> docTitles,
+                              String[] sortedTerms, PostingsSource source) throws IOException {
+        File tmp = new File(target.getAbsolutePath() + ".tmp");
+        long[] offsets = new long[sortedTerms.length];
+        int[] lengths = new int[sortedTerms.length];
+
+        try (CountingOutputStream counter = new CountingOutputStream(new FileOutputStream(tmp));
+             DataOutputStream out = new DataOutputStream(new BufferedOutputStream(counter)))
+        {
+            out.writeInt(MAGIC);
+            out.writeInt(VERSION);
+            out.writeInt(docNames.size());
+            for (int i = 0; i < docNames.size(); i++) {
+                out.writeUTF(docNames.get(i));
+                out.writeUTF(docTitles.get(i));
+            }
+
+            ByteArrayOutputStream buffer = new ByteArrayOutputStream();
+            for (int i = 0; i < sortedTerms.length; i++) {
+                buffer.reset();
+                encode(source.get(sortedTerms[i]), buffer);
+                out.flush();
+                offsets[i] = counter.count;
+                lengths[i] = buffer.size();
+                buffer.writeTo(out);
+            }
+
+            out.flush();
+            long dictionaryOffset = counter.count;
+            out.writeInt(sortedTerms.length);
+            for (int i = 0; i < sortedTerms.length; i++) {
+                out.writeUTF(sortedTerms[i]);
+                out.writeLong(offsets[i]);
+                out.writeInt(lengths[i]);
+            }
+            out.writeLong(dictionaryOffset);
+        }
+
+        Files.move(tmp.toPath(), target.toPath(), StandardCopyOption.REPLACE_EXISTING);
+    }
+
+    /** list layout: (docId, frequency, positions...)* -> varint encoded with deltas
+     */
+    private static void encode(IntList list, ByteArrayOutputStream out) {
+        int docs = 0;
+        for (int i = 0; i < list.size(); i += 2 + list.get(i + 1)) {
+            docs++;
+        }
+        writeVarInt(docs, out);
+
+        int lastDocId = 0;
+        for (int i = 0; i < list.size(); ) {
+            int docId = list.get(i);
+            int frequency = list.get(i + 1);
+            writeVarInt(docId - lastDocId, out);
+            writeVarInt(frequency, out);
+            lastDocId = docId;
+
+            int lastPosition = 0;
+            for (int j = i + 2; j < i + 2 + frequency; j++) {
+                writeVarInt(list.get(j) - lastPosition, out);
+                lastPosition = list.get(j);
+            }
+            i += 2 + frequency;
+        }
+    }
+
+    private static void writeVarInt(int value, ByteArrayOutputStream out) {
+        while ((value & ~0x7F) != 0) {
+            out.write((value & 0x7F) | 0x80);
+            value >>>= 7;
+        }
+        out.write(value);
+    }
+
+    private static int readVarInt(byte[] bytes, int[] cursor) {
+        int value = 0;
+        int shift = 0;
+        byte b;
+        do {
+            b = bytes[cursor[0]++];
+            value |= (b & 0x7F) << shift;
+            shift += 7;
+        } while ((b & 0x80) != 0);
+        return value;
+    }
+
+    private static class IntList {
+        private int[] values = new int[4];
+        private int size = 0;
+
+        void add(int value) {
+            if (size == values.length) {
+                values = Arrays.copyOf(values, size * 2);
+            }
+            values[size++] = value;
+        }
+
+        void addAll(IntList other) {
+            for (int i = 0; i < other.size; i++) {
+                add(other.values[i]);
+            }
+        }
+
+        int get(int index) { return values[index]; }
+
+        int size() { return size; }
+    }
+
+    private static class CountingOutputStream extends FilterOutputStream {
+        private long count = 0;
+
+        private CountingOutputStream(OutputStream out) {
+            super(out);
+        }
+
+        @Override
+        public void write(int b) throws IOException {
+            out.write(b);
+            count++;
+        }
+
+        @Override
+        public void write(byte[] b, int off, int len) throws IOException {
+            out.write(b, off, len);
+            count += len;
+        }
+    }
+}
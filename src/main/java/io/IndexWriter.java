@@ -0,0 +1,182 @@
+package io;
+
+import org.jetbrains.annotations.NotNull;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.channels.FileChannel;
+import java.nio.channels.FileLock;
+import java.nio.channels.OverlappingFileLockException;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+/**
+ * IndexWriter builds the search index of a crawl while it runs.
+ * Documents are buffered in memory and flushed as a new segment every BATCH_SIZE documents,
+ * segments are merged on a single background thread so the calling (Write) threads never wait on disk.
+ * close() flushes the remainder and merges everything into one segment.
+ */
+public class IndexWriter {
+    private static final int BATCH_SIZE = 500;
+    private static final int MERGE_FACTOR = 10;
+    private static final String LOCK_NAME = "writer.lock";
+
+    private final File indexFolder;
+    private final ExecutorService flushThread = Executors.newSingleThreadExecutor();
+    private final List<File> segmentFiles = new ArrayList<>(); // accessed by flushThread only
+    private final FileChannel lockChannel;
+    private IndexSegment.Builder builder = new IndexSegment.Builder();
+    private int segmentCount = 0;
+
+    public IndexWriter(@NotNull File dayFolder) throws IOException {
+        indexFolder = SearchIndex.getIndexFolder(dayFolder);
+        if (!indexFolder.exists() && !indexFolder.mkdir()) {
+            throw new IOException("Failed to init dir");
+        }
+        // segments of an earlier crawl of the same day are kept and merged with the new ones
+        // oldest first, the merge keeps a page from the newest segment holding it
+        segmentFiles.addAll(Arrays.asList(SearchIndex.listSegments(indexFolder)));
+        lockChannel = FileChannel.open(getLockFile(indexFolder).toPath(),
+                StandardOpenOption.CREATE, StandardOpenOption.WRITE);
+        try {
+            if (lockChannel.tryLock() == null) {
+                throw new OverlappingFileLockException();
+            }
+        }
+        catch (OverlappingFileLockException ex) {
+            lockChannel.close();
+            throw new IOException("index is already being written");
+        }
+    }
+
+    /** adds a document to the current batch, hands the batch to the flush thread once full
+     */
+    public void add(String name, String title, CharSequence text) {
+        IndexSegment.Builder full = null;
+
+        synchronized (this) {
+            if (flushThread.isShutdown()) {
+                return;
+            }
+            builder.addDocument(name, title, text);
+            if (builder.getDocCount() >= BATCH_SIZE) {
+                full = builder;
+                builder = new IndexSegment.Builder();
+            }
+        }
+
+        if (full != null) {
+            flush(full);
+        }
+    }
+
+    /** flushes the last batch, merges all segments into one and releases the index
+     */
+    public synchronized void close() {
+        if (flushThread.isShutdown()) {
+            return;
+        }
+        if (builder.getDocCount() != 0) {
+            flush(builder);
+            builder = new IndexSegment.Builder();
+        }
+
+        flushThread.execute(() -> {
+            try {
+                if (segmentFiles.size() > 1) {
+                    merge(new ArrayList<>(segmentFiles));
+                }
+            }
+            catch (IOException ex) {
+                ex.printStackTrace();
+            }
+            finally {
+                try {
+                    lockChannel.close();
+                } catch (IOException ex) {
+                    ex.printStackTrace();
+                }
+                getLockFile(indexFolder).delete();
+            }
+        });
+        flushThread.shutdown();
+    }
+
+    /** true if a crawl (of this or another process) is currently writing the index in indexFolder
+     */
+    static boolean isActive(File indexFolder) {
+        File lockFile = getLockFile(indexFolder);
+        if (!lockFile.exists()) {
+            return false;
+        }
+
+        try (FileChannel channel = FileChannel.open(lockFile.toPath(), StandardOpenOption.WRITE)) {
+            FileLock lock = channel.tryLock();
+            if (lock == null) {
+                return true;
+            }
+            // left behind by a crawl that never finished
+            lock.release();
+            return false;
+        }
+        catch (OverlappingFileLockException ex) {
+            return true;
+        }
+        catch (IOException ex) {
+            return false;
+        }
+    }
+
+    private static File getLockFile(File indexFolder) {
+        return new File(indexFolder.getAbsolutePath() + "\\" + LOCK_NAME);
+    }
+
+    private void flush(IndexSegment.Builder full) {
+        flushThread.execute(() -> {
+            try {
+                File segmentFile = nextSegmentFile();
+                full.write(segmentFile);
+                segmentFiles.add(segmentFile);
+
+                if (segmentFiles.size() >= MERGE_FACTOR) {
+                    merge(new ArrayList<>(segmentFiles));
+                }
+            }
+            catch (IOException ex) {
+                ex.printStackTrace();
+            }
+        });
+    }
+
+    private void merge(List<File> toMerge) throws IOException {
+        File merged = nextSegmentFile();
+        List<IndexSegment> segments = new ArrayList<>();
+
+        try {
+            for (File segmentFile : toMerge) {
+                segments.add(IndexSegment.open(segmentFile));
+            }
+            IndexSegment.merge(segments, merged);
+        }
+        finally {
+            for (IndexSegment segment : segments) {
+                segment.close();
+            }
+        }
+
+        for (File segmentFile : toMerge) {
+            segmentFile.delete();
+        }
+        segmentFiles.removeAll(toMerge);
+        segmentFiles.add(merged);
+    }
+
+    private File nextSegmentFile() {
+        return new File(indexFolder.getAbsolutePath() + "\\" + System.currentTimeMillis() + "-"
+                + (segmentCount++) + SearchIndex.SEGMENT_EXTENSION);
+    }
+}
@@ -0,0 +1,92 @@
+package io;
+
+import org.jetbrains.annotations.NotNull;
+import org.jsoup.Connection;
+import org.jsoup.Jsoup;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.UncheckedIOException;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+
+/**
+ * JsoupFetcher fetches with a Jsoup connection per request, on the calling thread:
+ * the futures it returns are complete already.
+ */
+public class JsoupFetcher implements Fetcher {
+
+    @NotNull
+    @Override
+    public CompletableFuture<Fetcher.Response> fetch(@NotNull String url, @NotNull Map<String, String> headers, int timeoutMillis) {
+        return execute(connect(url, headers, timeoutMillis), false);
+    }
+
+    @NotNull
+    @Override
+    public CompletableFuture<Fetcher.Response> stream(@NotNull String url, @NotNull Map<String, String> headers, int timeoutMillis) {
+        // assets can be of any size
+        return execute(connect(url, headers, timeoutMillis).maxBodySize(0), true);
+    }
+
+    private static Connection connect(String url, Map<String, String> headers, int timeoutMillis) {
+        Connection connection = Jsoup.connect(url).
+                timeout(timeoutMillis).
+                ignoreHttpErrors(true).
+                ignoreContentType(true);
+        headers.forEach(connection::header);
+        return connection;
+    }
+
+    private static CompletableFuture<Fetcher.Response> execute(Connection connection, boolean stream) {
+        try {
+            Connection.Response response = connection.execute();
+            if (!stream) {
+                response.bufferUp();
+            }
+            return CompletableFuture.completedFuture(new Response(response, !stream));
+        } catch (IOException | IllegalArgumentException ex) {
+            return CompletableFuture.failedFuture(ex);
+        } catch (UncheckedIOException ex) {
+            return CompletableFuture.failedFuture(ex.getCause());
+        }
+    }
+
+    private static class Response implements Fetcher.Response {
+        private final Connection.Response response;
+        private final boolean buffered;
+
+        private Response(Connection.Response response, boolean buffered) {
+            this.response = response;
+            this.buffered = buffered;
+        }
+
+        @Override
+        public int statusCode() { return response.statusCode(); }
+
+        @NotNull
+        @Override
+        public String url() { return response.url().toExternalForm(); }
+
+        @Override
+        public String header(@NotNull String name) { return response.header(name); }
+
+        @NotNull
+        @Override
+        public InputStream bodyStream() {
+            return buffered ? new ByteArrayInputStream(response.bodyAsBytes()) : response.bodyStream();
+        }
+
+        @NotNull
+        @Override
+        public byte[] bodyAsBytes() { return response.bodyAsBytes(); }
+
+        @Override
+        public void discard() throws IOException {
+            if (!buffered) {
+                response.bodyStream().close();
+            }
+        }
+    }
+}
@@ -0,0 +1,95 @@
+package io;
+
+import org.jetbrains.annotations.NotNull;
+
+import java.io.ByteArrayOutputStream;
+import java.io.EOFException;
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * PageLinks are the in-domain links and the images of a crawled page, kept aside in pages.links in the day folder
+ * since the snapshot points them at local files. One line per page: name, number of links, links and images,
+ * tab separated. The PageManifest keeps a page's offset in here, a 304 reads its links back from it.
+ * See PageLinksWriter.
+ */
+public class PageLinks {
+    static final String LINKS_FILE = "pages.links";
+    private static final int CHUNK = 8 * 1024;
+
+    private final List<String> links;
+    private final List<String> images;
+
+    public PageLinks(@NotNull List<String> links, @NotNull List<String> images) {
+        this.links = links;
+        this.images = images;
+    }
+
+    /** the links of the page name, written at offset of the day folder's file
+     */
+    @NotNull
+    public static PageLinks read(@NotNull File dayFolder, long offset, @NotNull String name) throws IOException {
+        ByteArrayOutputStream line = new ByteArrayOutputStream();
+        try (RandomAccessFile file = new RandomAccessFile(new File(dayFolder, LINKS_FILE), "r")) {
+            file.seek(offset);
+            byte[] chunk = new byte[CHUNK];
+            int end = -1;
+            while (end < 0) {
+                int read = file.read(chunk);
+                if (read == -1) {
+                    throw new EOFException("truncated links of " + name);
+                }
+                for (int i = 0; i < read && end < 0; i++) {
+                    if (chunk[i] == '\n') {
+                        end = i;
+                    }
+                }
+                line.write(chunk, 0, end < 0 ? read : end);
+            }
+        }
+
+        String[] fields = new String(line.toByteArray(), StandardCharsets.UTF_8).split("\t", -1);
+        if (fields.length < 2 || !fields[0].equals(name)) {
+            throw new IOException("no links of " + name + " at " + offset);
+        }
+        try {
+            int count = Integer.parseInt(fields[1]);
+            List<String> all = Arrays.asList(fields).subList(2, fields.length);
+            return new PageLinks(all.subList(0, count), all.subList(count, all.size()));
+        } catch (NumberFormatException | IndexOutOfBoundsException ex) {
+            throw new IOException("corrupt links of " + name, ex);
+        }
+    }
+
+    /** absolute urls of the page's in-domain links */
+    public List<String> getLinks() { return Collections.unmodifiableList(links); }
+
+    /** absolute urls of the page's images */
+    public List<String> getImages() { return Collections.unmodifiableList(images); }
+
+    /** the line of the page name, a url can't break it, tabs and line breaks in it are percent-encoded
+     */
+    static String format(@NotNull String name, @NotNull List<String> links, @NotNull List<String> images) {
+        StringBuilder line = new StringBuilder(name).append('\t').append(links.size());
+        for (String link : links) {
+            line.append('\t').append(escape(link));
+        }
+        for (String image : images) {
+            line.append('\t').append(escape(image));
+        }
+        return line.append('\n').toString();
+    }
+
+    private static String escape(String url) {
+        if (url.indexOf('\t') < 0 && url.indexOf('\n') < 0 && url.indexOf('\r') < 0) {
+            return url;
+        }
+        return url.replace("\t", "%09").replace("\n", "%0A").replace("\r", "%0D");
+    }
+}
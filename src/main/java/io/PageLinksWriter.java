@@ -0,0 +1,54 @@
+package io;
+
+import org.jetbrains.annotations.NotNull;
+
+import java.io.*;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+
+/**
+ * PageLinksWriter appends the links of every page written by a crawl to the PageLinks of its day folder.
+ * One writer per crawl, shared by the crawl's Write threads.
+ */
+public class PageLinksWriter implements Closeable {
+    private static final int FLUSH_INTERVAL = 64;
+
+    private final OutputStream out;
+    private long offset;
+    private int unflushed = 0;
+    private boolean closed = false;
+
+    public PageLinksWriter(@NotNull File dayFolder) throws IOException {
+        File file = new File(dayFolder, PageLinks.LINKS_FILE);
+        out = new BufferedOutputStream(new FileOutputStream(file, true));
+        offset = file.length();
+    }
+
+    /** appends the links of the page name, returns the offset to read them back at
+     */
+    public synchronized long append(@NotNull String name, @NotNull List<String> links, @NotNull List<String> images)
+            throws IOException {
+        if (closed) {
+            throw new IOException("page links are closed");
+        }
+        byte[] line = PageLinks.format(name, links, images).getBytes(StandardCharsets.UTF_8);
+        out.write(line);
+        long at = offset;
+        offset += line.length;
+
+        if (++unflushed == FLUSH_INTERVAL) {
+            out.flush();
+            unflushed = 0;
+        }
+        return at;
+    }
+
+    @Override
+    public synchronized void close() throws IOException {
+        if (closed) {
+            return;
+        }
+        closed = true;
+        out.close();
+    }
+}
@@ -0,0 +1,211 @@
+package io;
+
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import java.io.*;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * PageManifest remembers, per domain and across day folders, the latest snapshot of every crawled url:
+ * its ETag / Last-Modified, the SHA-256 of the html written, where the snapshot is and where its links are
+ * in the PageLinks of its day folder. With it a re-crawl can ask for pages conditionally and reuse the previous
+ * snapshot of a page that answers 304 Not Modified, or whose content turns out unchanged.
+ *
+ * Stored as pages.manifest in the domain folder: magic, version, the day folders relative to the domain folder,
+ * then one record per url. Held in memory while a crawl of the domain runs.
+ */
+public class PageManifest {
+    private static final String MANIFEST_FILE = "\\pages.manifest";
+    private static final String LEGACY_FILE = "\\pages.data";
+    private static final int MAGIC = 0x41504D46; // APMF
+    private static final int VERSION = 1;
+    private static final int MAX_UTF = 65535 / 3; // chars writeUTF takes, at most 3 bytes each
+    private static final Map<String, PageManifest> manifests = new HashMap<>();
+
+    private final File folder;
+    private final ConcurrentHashMap<String, Page> pages;
+    private int users = 0;
+
+    private PageManifest(File folder, ConcurrentHashMap<String, Page> pages) {
+        this.folder = folder;
+        this.pages = pages;
+    }
+
+    /** one manifest per domain folder and process, shared by every running crawler of the domain,
+     * each of which has to release it
+     */
+    public static PageManifest open(@NotNull File domainFolder) {
+        synchronized (manifests) {
+            PageManifest manifest = manifests.get(domainFolder.getAbsolutePath());
+            if (manifest == null) {
+                manifest = new PageManifest(domainFolder, load(domainFolder));
+                manifests.put(domainFolder.getAbsolutePath(), manifest);
+            }
+            manifest.users++;
+            return manifest;
+        }
+    }
+
+    /** the latest snapshot of url, null if url hasn't been crawled or its snapshot is gone
+     */
+    @Nullable
+    public Page lookup(@NotNull String url) {
+        Page page = pages.get(url);
+        return page != null && PageStore.exists(page.getSnapshot()) ? page : null;
+    }
+
+    public void put(@NotNull String url, @NotNull Page page) {
+        pages.put(url, page);
+    }
+
+    /** writes the manifest, called once a crawl is done
+     */
+    public synchronized void save() throws IOException {
+        File data = new File(folder.getAbsolutePath() + MANIFEST_FILE);
+        File tmp = new File(data.getAbsolutePath() + ".tmp");
+        String root = folder.getAbsolutePath();
+
+        Map<File, Integer> days = new HashMap<>();
+        List<String> dayPaths = new ArrayList<>();
+        for (Page page : pages.values()) {
+            if (!days.containsKey(page.day) && page.day.getAbsolutePath().startsWith(root)) {
+                days.put(page.day, dayPaths.size());
+                dayPaths.add(page.day.getAbsolutePath().substring(root.length()));
+            }
+        }
+
+        try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(tmp)))) {
+            out.writeInt(MAGIC);
+            out.writeInt(VERSION);
+            out.writeInt(dayPaths.size());
+            for (String dayPath : dayPaths) {
+                out.writeUTF(dayPath);
+            }
+            for (Map.Entry<String, Page> entry : pages.entrySet()) {
+                Integer day = days.get(entry.getValue().day);
+                if (day != null && entry.getKey().length() <= MAX_UTF) {
+                    out.writeBoolean(true);
+                    out.writeUTF(entry.getKey());
+                    entry.getValue().write(out, day);
+                }
+            }
+            out.writeBoolean(false);
+        }
+        Files.move(tmp.toPath(), data.toPath(), StandardCopyOption.REPLACE_EXISTING);
+        // the manifest of older versions, serialized with every page's links
+        Files.deleteIfExists(new File(folder.getAbsolutePath() + LEGACY_FILE).toPath());
+    }
+
+    /** lets go of the manifest, it's dropped once no crawler of the domain uses it
+     */
+    public void release() {
+        synchronized (manifests) {
+            if (--users == 0) {
+                manifests.remove(folder.getAbsolutePath());
+            }
+        }
+    }
+
+    private static ConcurrentHashMap<String, Page> load(File domainFolder) {
+        ConcurrentHashMap<String, Page> pages = new ConcurrentHashMap<>();
+        File data = new File(domainFolder.getAbsolutePath() + MANIFEST_FILE);
+        if (!data.exists()) {
+            return pages;
+        }
+
+        try (DataInputStream in = new DataInputStream(new BufferedInputStream(new FileInputStream(data)))) {
+            if (in.readInt() != MAGIC || in.readInt() != VERSION) {
+                throw new IOException("not a page manifest: " + data.getName());
+            }
+            File[] days = new File[in.readInt()];
+            for (int i = 0; i < days.length; i++) {
+                days[i] = new File(domainFolder.getAbsolutePath() + in.readUTF());
+            }
+            while (in.readBoolean()) {
+                String url = in.readUTF();
+                pages.put(url, Page.read(in, days));
+            }
+        } catch (IOException | IndexOutOfBoundsException ex) {
+            // the manifest only saves fetches, without it the next crawl fetches every page in full
+            ex.printStackTrace();
+            pages.clear();
+        }
+        return pages;
+    }
+
+    /**
+     * Page is a snapshot of a url
+     */
+    public static class Page {
+        private final String eTag;
+        private final String lastModified;
+        private final String hash;
+        private final File day;
+        private final String name;
+        private final long linksAt;
+        private final boolean withImages;
+
+        public Page(@Nullable String eTag, @Nullable String lastModified, @NotNull String hash, @NotNull File dayFolder,
+                    @NotNull String name, long linksAt, boolean withImages) {
+            this.eTag = eTag;
+            this.lastModified = lastModified;
+            this.hash = hash;
+            this.day = dayFolder;
+            this.name = name;
+            this.linksAt = linksAt;
+            this.withImages = withImages;
+        }
+
+        /** the same page, now also snapshot in another day folder, its links written there at linksAt
+         */
+        public Page movedTo(@NotNull File dayFolder, long linksAt) {
+            return new Page(eTag, lastModified, hash, dayFolder, name, linksAt, withImages);
+        }
+
+        @Nullable
+        public String getETag() { return eTag; }
+
+        @Nullable
+        public String getLastModified() { return lastModified; }
+
+        public String getHash() { return hash; }
+
+        public File getSnapshot() { return new File(day.getAbsolutePath() + "\\" + "html" + "\\" + name); }
+
+        /** false if the crawl of the snapshot had no PageLinks to write the page's links to */
+        public boolean hasLinks() { return linksAt >= 0; }
+
+        /** the page's links, read from the PageLinks of its day folder */
+        public PageLinks readLinks() throws IOException { return PageLinks.read(day, linksAt, name); }
+
+        /** true if the snapshot points at downloaded images rather than the originals */
+        public boolean isWithImages() { return withImages; }
+
+        private void write(DataOutputStream out, int dayIndex) throws IOException {
+            // a header too long to store is left out, the page is then fetched in full
+            out.writeUTF(eTag != null && eTag.length() <= MAX_UTF ? eTag : "");
+            out.writeUTF(lastModified != null && lastModified.length() <= MAX_UTF ? lastModified : "");
+            out.writeUTF(hash);
+            out.writeInt(dayIndex);
+            out.writeUTF(name);
+            out.writeLong(linksAt);
+            out.writeBoolean(withImages);
+        }
+
+        private static Page read(DataInputStream in, File[] days) throws IOException {
+            String eTag = in.readUTF();
+            String lastModified = in.readUTF();
+            String hash = in.readUTF();
+            File day = days[in.readInt()];
+            return new Page(eTag.isEmpty() ? null : eTag, lastModified.isEmpty() ? null : lastModified, hash,
+                    day, in.readUTF(), in.readLong(), in.readBoolean());
+        }
+    }
+}
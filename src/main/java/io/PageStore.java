@@ -0,0 +1,486 @@
+package io;
+
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+import org.jsoup.Jsoup;
+import org.jsoup.nodes.Document;
+
+import java.io.*;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.zip.DeflaterOutputStream;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.InflaterInputStream;
+
+/**
+ * PageStore reads and writes the html snapshots of a crawl. A snapshot is either a full '<hash>.html'
+ * file, a '<hash>.html.delta' file: a line delta against an earlier snapshot of the same page,
+ * or a record in the html folder's WARC segment (see WarcWriter), found through the segment's index.
+ * Every KEYFRAME_INTERVAL:th snapshot in a chain of deltas is stored in full, which bounds the work of a read.
+ * Callers always use the name of the full file, PageStore resolves where the snapshot is stored.
+ */
+public class PageStore {
+    public static final String DELTA_EXTENSION = ".delta";
+    static final String SEGMENT_FILE = "pages.warc.gz";
+    static final String SEGMENT_INDEX = "pages.idx";
+    private static final int MAGIC = 0x41445444;
+    static final int KEYFRAME_INTERVAL = 8;
+    private static final int CACHE_SIZE = 64;
+
+    private static final byte COPY = 0;
+    private static final byte INSERT = 1;
+
+    // rebuilt snapshots, consecutive days tend to share their bases
+    private static final Map<String, String> cache = new LinkedHashMap<>(CACHE_SIZE, 0.75f, true) {
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<String, String> eldest) {
+            return size() > CACHE_SIZE;
+        }
+    };
+    // html folder -> name -> {offset, length} of its record in the segment
+    private static final Map<String, SegmentIndex> segmentIndexes = new HashMap<>();
+
+    private PageStore() {
+        throw new UnsupportedOperationException();
+    }
+
+    public static boolean exists(@NotNull File htmlFile) {
+        return htmlFile.exists() || deltaOf(htmlFile).exists() || recordOf(htmlFile) != null;
+    }
+
+    /** true if the snapshot is a record of the folder's segment
+     */
+    public static boolean isRecord(@NotNull File htmlFile) {
+        return !htmlFile.exists() && !deltaOf(htmlFile).exists() && recordOf(htmlFile) != null;
+    }
+
+    /** the snapshots of an html folder, by the names of their full files
+     */
+    public static List<File> list(@NotNull File htmlFolder) {
+        File[] files = htmlFolder.listFiles();
+        Set<String> names = new LinkedHashSet<>();
+
+        if (files != null) {
+            for (File file : files) {
+                String name = file.getName();
+                if (name.endsWith(DELTA_EXTENSION)) {
+                    names.add(name.substring(0, name.length() - DELTA_EXTENSION.length()));
+                } else if (!name.equals(SEGMENT_FILE) && !name.equals(SEGMENT_INDEX)) {
+                    names.add(name);
+                }
+            }
+        }
+        SegmentIndex segmentIndex = segmentIndexOf(htmlFolder);
+        if (segmentIndex != null) {
+            names.addAll(segmentIndex.records.keySet());
+        }
+
+        List<File> htmlFiles = new ArrayList<>(names.size());
+        for (String name : names) {
+            htmlFiles.add(new File(htmlFolder, name));
+        }
+        return htmlFiles;
+    }
+
+    /** the html of a snapshot, rebuilt from its chain of deltas if need be
+     */
+    public static String read(@NotNull File htmlFile) throws IOException {
+        if (htmlFile.exists()) {
+            return new String(Files.readAllBytes(htmlFile.toPath()), StandardCharsets.UTF_8);
+        }
+
+        String key = htmlFile.getAbsolutePath();
+        synchronized (cache) {
+            String html = cache.get(key);
+            if (html != null) {
+                return html;
+            }
+        }
+
+        String html;
+        if (deltaOf(htmlFile).exists()) {
+            Delta delta = Delta.read(deltaOf(htmlFile));
+            html = delta.apply(splitLines(read(delta.getBase(htmlFile))));
+        } else {
+            long[] record = recordOf(htmlFile);
+            if (record == null) {
+                throw new FileNotFoundException(htmlFile.getAbsolutePath());
+            }
+            html = readRecord(new File(htmlFile.getAbsoluteFile().getParentFile(), SEGMENT_FILE), record);
+        }
+
+        synchronized (cache) {
+            cache.put(key, html);
+        }
+        return html;
+    }
+
+    public static Document parse(@NotNull File htmlFile) throws IOException {
+        return Jsoup.parse(read(htmlFile), htmlFile.toURI().toString());
+    }
+
+    /** writes html as a delta against base when that pays off, else in full
+     */
+    public static void write(@NotNull File htmlFile, @NotNull String html, @Nullable File base) throws IOException {
+        forget(htmlFile);
+        if (base != null && !base.getAbsoluteFile().equals(htmlFile.getAbsoluteFile())
+                && exists(base) && depthOf(base) + 1 < KEYFRAME_INTERVAL) {
+            Delta delta = Delta.diff(splitLines(read(base)), splitLines(html), depthOf(base) + 1,
+                    relativize(htmlFile, base));
+
+            if (delta.insertedChars < html.length() / 2) {
+                Files.deleteIfExists(htmlFile.toPath());
+                delta.write(deltaOf(htmlFile));
+                return;
+            }
+        }
+
+        Files.deleteIfExists(deltaOf(htmlFile).toPath());
+        // never write through a hard link into another day's snapshot
+        Files.deleteIfExists(htmlFile.toPath());
+        try (Writer writer = new OutputStreamWriter(new FileOutputStream(htmlFile), StandardCharsets.UTF_8)) {
+            writer.write(html);
+        }
+    }
+
+    /** writes the UTF-8 bytes of a page in full
+     */
+    public static void write(@NotNull File htmlFile, @NotNull ByteBuffer html) throws IOException {
+        forget(htmlFile);
+        Files.deleteIfExists(deltaOf(htmlFile).toPath());
+        // never write through a hard link into another day's snapshot
+        Files.deleteIfExists(htmlFile.toPath());
+        try (FileChannel out = FileChannel.open(htmlFile.toPath(), StandardOpenOption.CREATE_NEW, StandardOpenOption.WRITE)) {
+            ByteBuffer bytes = html.duplicate();
+            while (bytes.hasRemaining()) {
+                out.write(bytes);
+            }
+        }
+    }
+
+    /** makes target an identical snapshot of source, in another folder
+     */
+    public static void link(@NotNull File source, @NotNull File target) throws IOException {
+        if (source.getAbsoluteFile().equals(target.getAbsoluteFile())) {
+            return;
+        }
+        forget(target);
+        if (source.exists()) {
+            Files.deleteIfExists(deltaOf(target).toPath());
+            IO.linkOrCopy(source, target);
+            return;
+        }
+
+        if (!deltaOf(source).exists()) {
+            // a segment record
+            write(target, read(source), null);
+            return;
+        }
+
+        // the delta's base is relative to its own folder -> rewrite it rather than link it
+        Delta delta = Delta.read(deltaOf(source));
+        Files.deleteIfExists(target.toPath());
+        delta.rebase(relativize(target, delta.getBase(source))).write(deltaOf(target));
+    }
+
+    static void forget(File htmlFile) {
+        synchronized (cache) {
+            cache.remove(htmlFile.getAbsolutePath());
+        }
+    }
+
+    private static int depthOf(File htmlFile) throws IOException {
+        return deltaOf(htmlFile).exists() && !htmlFile.exists() ? Delta.read(deltaOf(htmlFile)).depth : 0;
+    }
+
+    /** {offset, length} of the snapshot's record in its folder's segment, null if it has none
+     */
+    @Nullable
+    static long[] recordOf(File htmlFile) {
+        SegmentIndex segmentIndex = segmentIndexOf(htmlFile.getAbsoluteFile().getParentFile());
+        return segmentIndex == null ? null : segmentIndex.records.get(htmlFile.getName());
+    }
+
+    /** the index of a folder's segment, the part appended since it was last read is read on demand
+     */
+    @Nullable
+    private static SegmentIndex segmentIndexOf(File htmlFolder) {
+        File indexFile = new File(htmlFolder, SEGMENT_INDEX);
+        if (!indexFile.exists()) {
+            return null;
+        }
+
+        synchronized (segmentIndexes) {
+            SegmentIndex segmentIndex = segmentIndexes.computeIfAbsent(indexFile.getAbsolutePath(), k -> new SegmentIndex());
+            if (indexFile.length() != segmentIndex.length) {
+                try {
+                    segmentIndex.update(indexFile);
+                } catch (IOException ex) {
+                    ex.printStackTrace();
+                }
+            }
+            return segmentIndex;
+        }
+    }
+
+    private static String readRecord(File segmentFile, long[] record) throws IOException {
+        byte[] compressed = new byte[(int) record[1]];
+        try (RandomAccessFile file = new RandomAccessFile(segmentFile, "r")) {
+            file.seek(record[0]);
+            file.readFully(compressed);
+        }
+
+        byte[] bytes;
+        try (InputStream in = new GZIPInputStream(new ByteArrayInputStream(compressed))) {
+            bytes = in.readAllBytes();
+        }
+
+        // WARC headers, then an empty line, then Content-Length bytes of html
+        int headerEnd = 0;
+        while (headerEnd + 3 < bytes.length && !(bytes[headerEnd] == '\r' && bytes[headerEnd + 1] == '\n'
+                && bytes[headerEnd + 2] == '\r' && bytes[headerEnd + 3] == '\n')) {
+            headerEnd++;
+        }
+        int contentLength = -1;
+        for (String header : new String(bytes, 0, headerEnd, StandardCharsets.UTF_8).split("\r\n")) {
+            if (header.regionMatches(true, 0, "Content-Length:", 0, 15)) {
+                contentLength = Integer.parseInt(header.substring(15).trim());
+            }
+        }
+        if (contentLength < 0 || headerEnd + 4 + contentLength > bytes.length) {
+            throw new IOException("corrupt record in " + segmentFile.getName());
+        }
+
+        return new String(bytes, headerEnd + 4, contentLength, StandardCharsets.UTF_8);
+    }
+
+    static File deltaOf(File htmlFile) {
+        return new File(htmlFile.getAbsolutePath() + DELTA_EXTENSION);
+    }
+
+    private static String relativize(File htmlFile, File base) {
+        Path folder = htmlFile.getAbsoluteFile().getParentFile().toPath();
+        return folder.relativize(base.getAbsoluteFile().toPath()).toString();
+    }
+
+    /** splits text into lines, each keeping its line break
+     */
+    private static List<String> splitLines(String text) {
+        List<String> lines = new ArrayList<>();
+        int start = 0;
+        for (int i = 0; i < text.length(); i++) {
+            if (text.charAt(i) == '\n') {
+                lines.add(text.substring(start, i + 1));
+                start = i + 1;
+            }
+        }
+        if (start < text.length()) {
+            lines.add(text.substring(start));
+        }
+        return lines;
+    }
+
+    /**
+     * SegmentIndex maps record names to their {offset, length} in a segment,
+     * lines of the index file are 'name offset length'
+     */
+    private static class SegmentIndex {
+        private final Map<String, long[]> records = new ConcurrentHashMap<>();
+        private long length = 0;
+
+        private void update(File indexFile) throws IOException {
+            try (RandomAccessFile file = new RandomAccessFile(indexFile, "r")) {
+                file.seek(length);
+                byte[] appended = new byte[(int) (file.length() - length)];
+                file.readFully(appended);
+
+                // a line still being written is read next time
+                int end = appended.length;
+                while (end > 0 && appended[end - 1] != '\n') {
+                    end--;
+                }
+                for (String line : new String(appended, 0, end, StandardCharsets.UTF_8).split("\n")) {
+                    String[] parts = line.split(" ");
+                    if (parts.length == 3) {
+                        records.put(parts[0], new long[] {Long.parseLong(parts[1]), Long.parseLong(parts[2])});
+                    }
+                }
+                length += end;
+            }
+        }
+    }
+
+    /**
+     * Delta is a list of operations that rebuild a snapshot from the lines of its base:
+     * copy a run of base lines, or insert new lines.
+     */
+    private static class Delta {
+        private static final int MAX_CANDIDATES = 16;
+
+        private final int depth;
+        private final String base;
+        private final List<Object> ops;   // int[] {start, count} to copy, String[] to insert
+        private final long insertedChars;
+
+        private Delta(int depth, String base, List<Object> ops, long insertedChars) {
+            this.depth = depth;
+            this.base = base;
+            this.ops = ops;
+            this.insertedChars = insertedChars;
+        }
+
+        /** greedy: at every target line, copy the longest run of base lines starting there, if any
+         */
+        private static Delta diff(List<String> baseLines, List<String> lines, int depth, String base) {
+            Map<String, List<Integer>> positions = new HashMap<>();
+            for (int i = 0; i < baseLines.size(); i++) {
+                positions.computeIfAbsent(baseLines.get(i), k -> new ArrayList<>(1)).add(i);
+            }
+
+            List<Object> ops = new ArrayList<>();
+            List<String> inserted = new ArrayList<>();
+            long insertedChars = 0;
+            int expected = 0; // where the last copy ended, the likeliest place for the next one
+
+            int i = 0;
+            while (i < lines.size()) {
+                int bestStart = -1;
+                int bestLength = 0;
+
+                List<Integer> candidates = positions.getOrDefault(lines.get(i), Collections.emptyList());
+                if (expected < baseLines.size() && baseLines.get(expected).equals(lines.get(i))) {
+                    bestStart = expected;
+                    bestLength = matchLength(baseLines, expected, lines, i);
+                }
+                for (int c = 0; c < candidates.size() && c < MAX_CANDIDATES; c++) {
+                    int length = matchLength(baseLines, candidates.get(c), lines, i);
+                    if (length > bestLength) {
+                        bestStart = candidates.get(c);
+                        bestLength = length;
+                    }
+                }
+
+                // a lone short line, e.g. "</div>", is cheaper to insert than to copy
+                if (bestLength > 1 || bestLength == 1 && lines.get(i).length() > 8) {
+                    if (!inserted.isEmpty()) {
+                        ops.add(inserted.toArray(new String[0]));
+                        inserted.clear();
+                    }
+                    ops.add(new int[] {bestStart, bestLength});
+                    expected = bestStart + bestLength;
+                    i += bestLength;
+                } else {
+                    inserted.add(lines.get(i));
+                    insertedChars += lines.get(i).length();
+                    i++;
+                }
+            }
+            if (!inserted.isEmpty()) {
+                ops.add(inserted.toArray(new String[0]));
+            }
+
+            return new Delta(depth, base, ops, insertedChars);
+        }
+
+        private static int matchLength(List<String> baseLines, int start, List<String> lines, int i) {
+            int length = 0;
+            while (start + length < baseLines.size() && i + length < lines.size()
+                    && baseLines.get(start + length).equals(lines.get(i + length))) {
+                length++;
+            }
+            return length;
+        }
+
+        private String apply(List<String> baseLines) throws IOException {
+            StringBuilder html = new StringBuilder();
+            for (Object op : ops) {
+                if (op instanceof int[]) {
+                    int[] copy = (int[]) op;
+                    if (copy[0] + copy[1] > baseLines.size()) {
+                        throw new IOException("delta does not match its base");
+                    }
+                    for (int i = copy[0]; i < copy[0] + copy[1]; i++) {
+                        html.append(baseLines.get(i));
+                    }
+                } else {
+                    for (String line : (String[]) op) {
+                        html.append(line);
+                    }
+                }
+            }
+            return html.toString();
+        }
+
+        private File getBase(File htmlFile) {
+            return htmlFile.getAbsoluteFile().getParentFile().toPath().resolve(base).normalize().toFile();
+        }
+
+        private Delta rebase(String base) {
+            return new Delta(depth, base, ops, insertedChars);
+        }
+
+        private void write(File deltaFile) throws IOException {
+            try (DataOutputStream out = new DataOutputStream(new DeflaterOutputStream(
+                    new BufferedOutputStream(new FileOutputStream(deltaFile))))) {
+                out.writeInt(MAGIC);
+                out.writeInt(depth);
+                out.writeUTF(base);
+                out.writeInt(ops.size());
+
+                for (Object op : ops) {
+                    if (op instanceof int[]) {
+                        out.writeByte(COPY);
+                        out.writeInt(((int[]) op)[0]);
+                        out.writeInt(((int[]) op)[1]);
+                    } else {
+                        String[] lines = (String[]) op;
+                        out.writeByte(INSERT);
+                        out.writeInt(lines.length);
+                        for (String line : lines) {
+                            byte[] bytes = line.getBytes(StandardCharsets.UTF_8);
+                            out.writeInt(bytes.length);
+                            out.write(bytes);
+                        }
+                    }
+                }
+            }
+        }
+
+        private static Delta read(File deltaFile) throws IOException {
+            try (DataInputStream in = new DataInputStream(new InflaterInputStream(
+                    new BufferedInputStream(new FileInputStream(deltaFile))))) {
+                if (in.readInt() != MAGIC) {
+                    throw new IOException("not a delta: " + deltaFile.getName());
+                }
+                int depth = in.readInt();
+                String base = in.readUTF();
+                int opCount = in.readInt();
+
+                List<Object> ops = new ArrayList<>(opCount);
+                long insertedChars = 0;
+                for (int i = 0; i < opCount; i++) {
+                    if (in.readByte() == COPY) {
+                        ops.add(new int[] {in.readInt(), in.readInt()});
+                    } else {
+                        String[] lines = new String[in.readInt()];
+                        for (int j = 0; j < lines.length; j++) {
+                            byte[] bytes = new byte[in.readInt()];
+                            in.readFully(bytes);
+                            lines[j] = new String(bytes, StandardCharsets.UTF_8);
+                            insertedChars += lines[j].length();
+                        }
+                        ops.add(lines);
+                    }
+                }
+
+                return new Delta(depth, base, ops, insertedChars);
+            }
+        }
+    }
+}
@@ -0,0 +1,176 @@
+package io;
+
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.charset.StandardCharsets;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * PageTable is the metadata of the pages of a crawl, one line per page in pages.meta in the day folder:
+ * name, url, hash, title, size in bytes, fetch time, fetch duration in ms and HTTP status, tab separated.
+ * The UI and search read titles from here instead of parsing pages, see PageTableWriter.
+ */
+public class PageTable {
+    static final String TABLE_FILE = "pages.meta";
+
+    // day folder -> its table, the part appended since it was last read is read on demand
+    private static final Map<String, Table> tables = new HashMap<>();
+
+    private PageTable() {
+        throw new UnsupportedOperationException();
+    }
+
+    /** the pages of a crawl by the names of their html files, empty if the crawl has no table
+     */
+    @NotNull
+    public static Map<String, Entry> read(@NotNull File dayFolder) {
+        File tableFile = new File(dayFolder, TABLE_FILE);
+        if (!tableFile.exists()) {
+            return Collections.emptyMap();
+        }
+
+        synchronized (tables) {
+            Table table = tables.computeIfAbsent(tableFile.getAbsolutePath(), k -> new Table());
+            if (tableFile.length() != table.length) {
+                try {
+                    table.update(tableFile);
+                } catch (IOException ex) {
+                    ex.printStackTrace();
+                }
+            }
+            return Collections.unmodifiableMap(table.entries);
+        }
+    }
+
+    /** the entry of a page in its crawl's table, null if it has none
+     */
+    @Nullable
+    public static Entry lookup(@NotNull File htmlFile) {
+        File dayFolder = htmlFile.getAbsoluteFile().getParentFile().getParentFile();
+        return read(dayFolder).get(htmlFile.getName());
+    }
+
+    /** the title of a page, from the table if it's in there, else from the page itself
+     */
+    @NotNull
+    public static String title(@NotNull File htmlFile) throws IOException {
+        Entry entry = lookup(htmlFile);
+        return entry != null ? entry.title : ArchiveReader.title(htmlFile);
+    }
+
+    /** the size in bytes of a page, from the table if it's in there, else from its file,
+     * only a delta or segment record without an entry is read for it
+     */
+    public static long size(@NotNull File htmlFile) throws IOException {
+        Entry entry = lookup(htmlFile);
+        if (entry != null) {
+            return entry.size;
+        }
+        return htmlFile.exists() ? htmlFile.length() : ArchiveReader.bytes(htmlFile).remaining();
+    }
+
+    /**
+     * Table is the parsed part of a pages.meta file
+     */
+    private static class Table {
+        private final Map<String, Entry> entries = new ConcurrentHashMap<>();
+        private long length = 0;
+
+        private void update(File tableFile) throws IOException {
+            try (RandomAccessFile file = new RandomAccessFile(tableFile, "r")) {
+                file.seek(length);
+                byte[] appended = new byte[(int) (file.length() - length)];
+                file.readFully(appended);
+
+                // a line still being written is read next time
+                int end = appended.length;
+                while (end > 0 && appended[end - 1] != '\n') {
+                    end--;
+                }
+                for (String line : new String(appended, 0, end, StandardCharsets.UTF_8).split("\n")) {
+                    Entry entry = Entry.parse(line);
+                    if (entry != null) {
+                        entries.put(entry.name, entry);
+                    }
+                }
+                length += end;
+            }
+        }
+    }
+
+    /**
+     * Entry is the metadata of one page
+     */
+    public static class Entry {
+        private final String name;
+        private final String url;
+        private final String hash;
+        private final String title;
+        private final long size;
+        private final long fetchedAt;
+        private final int fetchMillis;
+        private final int status;
+
+        public Entry(@NotNull String name, @NotNull String url, @NotNull String hash, @NotNull String title,
+                     long size, long fetchedAt, int fetchMillis, int status) {
+            this.name = name;
+            this.url = url;
+            this.hash = hash;
+            this.title = title;
+            this.size = size;
+            this.fetchedAt = fetchedAt;
+            this.fetchMillis = fetchMillis;
+            this.status = status;
+        }
+
+        String format() {
+            return name + "\t" + clean(url) + "\t" + hash + "\t" + clean(title) + "\t" + size + "\t"
+                    + fetchedAt + "\t" + fetchMillis + "\t" + status + "\n";
+        }
+
+        @Nullable
+        private static Entry parse(String line) {
+            String[] fields = line.split("\t", -1);
+            if (fields.length != 8) {
+                return null;
+            }
+            try {
+                return new Entry(fields[0], fields[1], fields[2], fields[3], Long.parseLong(fields[4]),
+                        Long.parseLong(fields[5]), Integer.parseInt(fields[6]), Integer.parseInt(fields[7]));
+            } catch (NumberFormatException ex) {
+                return null;
+            }
+        }
+
+        private static String clean(String field) {
+            return field.replaceAll("[\\t\\r\\n]+", " ");
+        }
+
+        public String getName() { return name; }
+
+        public String getUrl() { return url; }
+
+        /** SHA-256 of the html written */
+        public String getHash() { return hash; }
+
+        public String getTitle() { return title; }
+
+        /** bytes of html written */
+        public long getSize() { return size; }
+
+        /** epoch millis the fetch started at */
+        public long getFetchedAt() { return fetchedAt; }
+
+        public int getFetchMillis() { return fetchMillis; }
+
+        /** HTTP status, 304 for a page whose previous snapshot was reused */
+        public int getStatus() { return status; }
+    }
+}
@@ -0,0 +1,47 @@
+package io;
+
+import org.jetbrains.annotations.NotNull;
+
+import java.io.*;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * PageTableWriter appends the metadata of every page written by a crawl to its PageTable.
+ * One writer per crawl, shared by the crawl's Write threads.
+ */
+public class PageTableWriter implements Closeable {
+    private static final int FLUSH_INTERVAL = 64;
+
+    private final Writer table;
+    private int unflushed = 0;
+    private boolean closed = false;
+
+    public PageTableWriter(@NotNull File dayFolder) throws IOException {
+        table = new BufferedWriter(new OutputStreamWriter(
+                new FileOutputStream(new File(dayFolder, PageTable.TABLE_FILE), true), StandardCharsets.UTF_8));
+    }
+
+    /** appends entry, a later entry of the same name replaces it
+     */
+    public synchronized void append(@NotNull PageTable.Entry entry) throws IOException {
+        if (closed) {
+            throw new IOException("page table is closed");
+        }
+        table.write(entry.format());
+
+        // readers only see flushed entries, e.g. a search while the crawl is running
+        if (++unflushed == FLUSH_INTERVAL) {
+            table.flush();
+            unflushed = 0;
+        }
+    }
+
+    @Override
+    public synchronized void close() throws IOException {
+        if (closed) {
+            return;
+        }
+        closed = true;
+        table.close();
+    }
+}
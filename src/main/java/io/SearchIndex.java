@@ -0,0 +1,271 @@
+package io;
+
+import org.jetbrains.annotations.NotNull;
+import utils.SearchQuery;
+import utils.TextUtils;
+
+import java.io.Closeable;
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * SearchIndex gives access to the inverted index of a single crawl (day folder).
+ * The index lives in the 'index' folder next to log.data and is built on first use
+ * if missing or older than the crawl's html folder.
+ *
+ * Pages are matched by their words, not by substrings: a search word matches the words starting with it
+ * (volvo matches volvos, not kvolvo), in a phrase the last word is matched that way and the others in full.
+ */
+public class SearchIndex implements Closeable {
+    static final String SEGMENT_EXTENSION = ".seg";
+    /** segments are named <creation millis>[-<counter>].seg, oldest first */
+    static final Comparator<File> SEGMENT_ORDER = Comparator
+            .comparingLong((File file) -> segmentKey(file, 0))
+            .thenComparingLong(file -> segmentKey(file, 1));
+
+    private final List<IndexSegment> segments;
+    private final BitSet[] superseded;
+
+    /** segments oldest first
+     */
+    private SearchIndex(List<IndexSegment> segments) {
+        this.segments = segments;
+
+        // a page indexed again (re-crawled the same day, not merged yet) is only found in its newest segment
+        Map<String, Integer> newest = new HashMap<>();
+        for (int i = 0; i < segments.size(); i++) {
+            for (int docId = 0; docId < segments.get(i).getDocCount(); docId++) {
+                newest.put(segments.get(i).getDocName(docId), i);
+            }
+        }
+        superseded = new BitSet[segments.size()];
+        for (int i = 0; i < segments.size(); i++) {
+            superseded[i] = new BitSet();
+            for (int docId = 0; docId < segments.get(i).getDocCount(); docId++) {
+                if (newest.get(segments.get(i).getDocName(docId)) != i) {
+                    superseded[i].set(docId);
+                }
+            }
+        }
+    }
+
+    public static SearchIndex open(@NotNull File dayFolder) throws IOException {
+        File htmlFolder = new File(dayFolder.getAbsolutePath() + "\\html");
+        File indexFolder = getIndexFolder(dayFolder);
+
+        // one build per crawl, even if several searches hit the same day folder at once,
+        // a crawl that is still running maintains its own index -> use what has been flushed so far
+        synchronized (indexFolder.getAbsolutePath().intern()) {
+            if (!IndexWriter.isActive(indexFolder) && !isUpToDate(indexFolder, htmlFolder)) {
+                build(htmlFolder, indexFolder);
+            }
+        }
+
+        List<IndexSegment> segments = new ArrayList<>();
+        try {
+            for (File segmentFile : listSegments(indexFolder)) {
+                segments.add(IndexSegment.open(segmentFile));
+            }
+        }
+        catch (IOException ex) {
+            for (IndexSegment segment : segments) {
+                segment.close();
+            }
+            throw ex;
+        }
+
+        return new SearchIndex(segments);
+    }
+
+    public static File getIndexFolder(@NotNull File dayFolder) {
+        return new File(dayFolder.getAbsolutePath() + "\\index");
+    }
+
+    /** runs a query against the index, a word or phrase of the query is matched as a sequence of terms,
+     * the last of them as a prefix
+     */
+    public List<Hit> search(@NotNull SearchQuery query) throws IOException {
+        List<List<String>> queryTerms = new ArrayList<>();
+        for (String queryTerm : query.getTerms()) {
+            queryTerms.add(TextUtils.tokenize(queryTerm));
+        }
+
+        List<Hit> hits = new ArrayList<>();
+        for (int s = 0; s < segments.size(); s++) {
+            IndexSegment segment = segments.get(s);
+            TreeMap<Integer, int[]> counts = new TreeMap<>();
+
+            for (int t = 0; t < queryTerms.size(); t++) {
+                List<String> terms = queryTerms.get(t);
+                IndexSegment.Postings[] postings = new IndexSegment.Postings[terms.size()];
+                boolean missing = terms.isEmpty();
+
+                for (int i = 0; i < postings.length && !missing; i++) {
+                    postings[i] = i == postings.length - 1 ?
+                            segment.getPrefixPostings(terms.get(i)) : segment.getPostings(terms.get(i));
+                    missing = postings[i] == null;
+                }
+                if (missing) {
+                    continue;
+                }
+
+                for (int i = 0; i < postings[0].size(); i++) {
+                    int docId = postings[0].getDocId(i);
+                    int matches = countPhrase(postings, i, docId);
+
+                    if (matches != 0) {
+                        counts.computeIfAbsent(docId, k -> new int[queryTerms.size()])[t] = matches;
+                    }
+                }
+            }
+
+            // e.g. 'NOT volvo' -> documents without any of the terms match as well
+            if (query.matchesEmpty()) {
+                for (int docId = 0; docId < segment.getDocCount(); docId++) {
+                    counts.putIfAbsent(docId, new int[queryTerms.size()]);
+                }
+            }
+
+            for (Map.Entry<Integer, int[]> entry : counts.entrySet()) {
+                if (!superseded[s].get(entry.getKey()) && query.evaluate(entry.getValue())) {
+                    int docId = entry.getKey();
+                    hits.add(new Hit(segment.getDocName(docId), segment.getDocTitle(docId), query.matches(entry.getValue())));
+                }
+            }
+        }
+
+        return hits;
+    }
+
+    @Override
+    public void close() throws IOException {
+        for (IndexSegment segment : segments) {
+            segment.close();
+        }
+    }
+
+    /** counts the positions in docId where all terms follow each other
+     */
+    private static int countPhrase(IndexSegment.Postings[] postings, int firstIndex, int docId) {
+        int[][] positions = new int[postings.length][];
+        positions[0] = postings[0].getPositions(firstIndex);
+
+        for (int i = 1; i < postings.length; i++) {
+            int index = postings[i].indexOf(docId);
+            if (index < 0) {
+                return 0;
+            }
+            positions[i] = postings[i].getPositions(index);
+        }
+
+        if (positions.length == 1) {
+            return positions[0].length;
+        }
+
+        // occurrences never overlap, as when scanning: "la la" is found once in "la la la"
+        int count = 0;
+        int free = 0;
+        for (int start : positions[0]) {
+            boolean match = start >= free;
+            for (int i = 1; i < positions.length && match; i++) {
+                match = Arrays.binarySearch(positions[i], start + i) >= 0;
+            }
+            if (match) {
+                count++;
+                free = start + positions.length;
+            }
+        }
+
+        return count;
+    }
+
+    private static boolean isUpToDate(File indexFolder, File htmlFolder) {
+        File[] segmentFiles = listSegments(indexFolder);
+        if (segmentFiles.length == 0) {
+            return false;
+        }
+
+        long oldest = Long.MAX_VALUE;
+        for (File segmentFile : segmentFiles) {
+            oldest = Math.min(oldest, segmentFile.lastModified());
+        }
+
+        return oldest >= htmlFolder.lastModified();
+    }
+
+    /** (re)builds the index of a crawl from its html files, replacing any existing segments
+     */
+    private static void build(File htmlFolder, File indexFolder) throws IOException {
+        if (!indexFolder.exists() && !indexFolder.mkdir()) {
+            throw new IOException("Failed to init dir");
+        }
+
+        IndexSegment.Builder builder = new IndexSegment.Builder();
+
+        for (File htmlFile : PageStore.list(htmlFolder)) {
+            builder.addDocument(htmlFile.getName(), PageTable.title(htmlFile), ArchiveReader.text(htmlFile));
+        }
+
+        File[] oldSegments = listSegments(indexFolder);
+        File target = new File(indexFolder.getAbsolutePath() + "\\" + System.currentTimeMillis() + SEGMENT_EXTENSION);
+        builder.write(target);
+
+        for (File oldSegment : oldSegments) {
+            if (!oldSegment.equals(target)) {
+                oldSegment.delete();
+            }
+        }
+    }
+
+    /** the segments of indexFolder, oldest first
+     */
+    static File[] listSegments(File indexFolder) {
+        File[] segmentFiles = indexFolder.listFiles((dir, name) -> name.endsWith(SEGMENT_EXTENSION));
+        if (segmentFiles == null) {
+            return new File[0];
+        }
+        Arrays.sort(segmentFiles, SEGMENT_ORDER);
+        return segmentFiles;
+    }
+
+    /** part 0 (millis) or 1 (counter) of a segment's name, 0 if it has none
+     */
+    private static long segmentKey(File segmentFile, int part) {
+        String name = segmentFile.getName();
+        String[] parts = name.substring(0, name.length() - SEGMENT_EXTENSION.length()).split("-");
+        try {
+            return part < parts.length ? Long.parseLong(parts[part]) : 0;
+        } catch (NumberFormatException ex) {
+            return 0;
+        }
+    }
+
+    /**
+     * Hit is a single document matching a search
+     */
+    public static class Hit {
+        private final String name;
+        private final String title;
+        private final int matches;
+
+        private Hit(String name, String title, int matches) {
+            this.name = name;
+            this.title = title;
+            this.matches = matches;
+        }
+
+        public String getName() { return name; }
+
+        public String getTitle() { return title; }
+
+        public int getMatches() { return matches; }
+    }
+}
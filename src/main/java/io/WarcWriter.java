@@ -0,0 +1,111 @@
+package io;
+
+import org.jetbrains.annotations.NotNull;
+
+import java.io.*;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.WritableByteChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.time.Instant;
+import java.time.temporal.ChronoUnit;
+import java.util.UUID;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * WarcWriter appends the pages of a crawl to a single segment file in its html folder instead of
+ * writing one file per page. Every page is a WARC/1.0 resource record compressed as a gzip member
+ * of its own, so the segment is a valid .warc.gz and any record can be read on its own by offset.
+ * Offsets go to a small index file next to it, see PageStore.
+ * One writer per html folder, shared by the crawl's Write threads.
+ */
+public class WarcWriter implements Closeable {
+    private static final int FLUSH_INTERVAL = 64;
+
+    private final File htmlFolder;
+    private final OutputStream segment;
+    private final Writer index;
+    private long offset;
+    private int unflushed = 0;
+    private boolean closed = false;
+
+    public WarcWriter(@NotNull File htmlFolder) throws IOException {
+        File segmentFile = new File(htmlFolder, PageStore.SEGMENT_FILE);
+        File indexFile = new File(htmlFolder, PageStore.SEGMENT_INDEX);
+
+        this.htmlFolder = htmlFolder;
+        offset = segmentFile.length();
+        segment = new BufferedOutputStream(new FileOutputStream(segmentFile, true), 256 * 1024);
+        index = new BufferedWriter(new OutputStreamWriter(new FileOutputStream(indexFile, true), StandardCharsets.UTF_8));
+    }
+
+    /** appends the html of url as record name, a later record of the same name replaces it
+     */
+    public void append(@NotNull String name, @NotNull String url, @NotNull String html) throws IOException {
+        append(name, url, ByteBuffer.wrap(html.getBytes(StandardCharsets.UTF_8)));
+    }
+
+    /** appends the UTF-8 bytes of the html of url as record name
+     */
+    public synchronized void append(@NotNull String name, @NotNull String url, @NotNull ByteBuffer html) throws IOException {
+        if (closed) {
+            throw new IOException("segment is closed");
+        }
+
+        ByteBuffer body = html.duplicate();
+        String header = "WARC/1.0\r\n" +
+                "WARC-Type: resource\r\n" +
+                "WARC-Record-ID: <urn:uuid:" + UUID.randomUUID() + ">\r\n" +
+                "WARC-Date: " + Instant.now().truncatedTo(ChronoUnit.SECONDS) + "\r\n" +
+                "WARC-Target-URI: " + url + "\r\n" +
+                "Content-Type: text/html; charset=UTF-8\r\n" +
+                "Content-Length: " + body.remaining() + "\r\n" +
+                "\r\n";
+
+        ByteArrayOutputStream record = new ByteArrayOutputStream(body.remaining() / 4 + 512);
+        try (GZIPOutputStream gzip = new GZIPOutputStream(record);
+             WritableByteChannel out = Channels.newChannel(gzip)) {
+            gzip.write(header.getBytes(StandardCharsets.UTF_8));
+            while (body.hasRemaining()) {
+                out.write(body);
+            }
+            gzip.write("\r\n\r\n".getBytes(StandardCharsets.UTF_8));
+        }
+
+        // a record is shadowed by a file of the same name, e.g. from an earlier crawl the same day
+        Files.deleteIfExists(new File(htmlFolder, name).toPath());
+        Files.deleteIfExists(new File(htmlFolder, name + PageStore.DELTA_EXTENSION).toPath());
+
+        record.writeTo(segment);
+        index.write(name + " " + offset + " " + record.size() + "\n");
+        offset += record.size();
+        PageStore.forget(new File(htmlFolder, name));
+
+        // readers only see flushed records, e.g. a search while the crawl is running
+        if (++unflushed == FLUSH_INTERVAL) {
+            flush();
+        }
+    }
+
+    public synchronized void flush() throws IOException {
+        // segment first, an index entry must never point past the end of the segment
+        segment.flush();
+        index.flush();
+        unflushed = 0;
+    }
+
+    @Override
+    public synchronized void close() throws IOException {
+        if (closed) {
+            return;
+        }
+        closed = true;
+        try {
+            flush();
+        } finally {
+            segment.close();
+            index.close();
+        }
+    }
+}
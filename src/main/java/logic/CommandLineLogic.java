@@ -4,6 +4,7 @@ package logic;
 
 import javafx.scene.control.TreeView;
 import objects.CommandPrompt;
+import objects.CrawlOption;
 import objects.CrawlType;
 import objects.Execute;
 
@@ -11,10 +12,18 @@ import java.io.IOException;
 import java.time.LocalDateTime;
 import java.time.format.DateTimeFormatter;
 import java.util.Collections;
+import java.util.EnumSet;
 import java.util.HashMap;
+import java.util.regex.Matcher;
 import java.util.regex.Pattern;
 
 public class CommandLineLogic {
+    // the flags trailing a crawl command, in any order:
+    // --stacktrace, --as <var>, --with <option[,option...]>, --image-threads <n>
+    private static final String CRAWL_FLAGS = "(?: --stacktrace| --as [^\\s]+| --with [^\\s]+| --image-threads \\d{1,5}+)*";
+    private static final Pattern CRAWL_FLAG = Pattern.compile(
+            " --(stacktrace)| --(as) ([^\\s]+)| --(with) ([^\\s]+)| --(image-threads) (\\d{1,5}+)");
+
     private final CommandPrompt prompt;
     private final TreeView<String> treeView;
     private final HashMap<String, Execute> commands = initMap();
@@ -40,9 +49,7 @@ public class CommandLineLogic {
     private HashMap<String, Execute> initMap() {
         return new HashMap<>() {
             {
-                put("^./crawl .* use: \\d{1,2}+, \\d{1,5}+, (true|false)$",              (input) -> crawl(input, Keyword.NONE));
-                put("^./crawl .* use: \\d{1,2}+, \\d{1,5}+, (true|false) --stacktrace$", (input) -> crawl(input, Keyword.STACKTRACE));
-                put("^./crawl .* use: \\d{1,2}+, \\d{1,5}+, (true|false) --as [^\\s]*$", (input) -> crawl(input, Keyword.AS));
+                put("^./crawl .* use: \\d{1,5}+, \\d{1,5}+, (true|false)" + CRAWL_FLAGS + "$", (input) -> crawl(input));
                 put("^./crawl init$", (input) -> {
                     if (crawler != null) {
                         crawler.init();
@@ -71,6 +78,13 @@ public class CommandLineLogic {
                        printNullReferenceMsg();
                    }
                 });
+                put("^./crawl data --live$", (input) -> {
+                    if (crawler != null) {
+                        crawler.printLiveData();
+                    } else {
+                        printNullReferenceMsg();
+                    }
+                });
                 put("^./crawl shutdown$", (input) -> {
                     if (crawler != null) {
                         crawler.shutdown();
@@ -86,21 +100,28 @@ public class CommandLineLogic {
         };
     }
 
-    private void crawl(String input, Keyword keyword) {
+    private void crawl(String input) {
         boolean stacktrace = false;
         String var = null;
-
-        switch (keyword) {
-            case STACKTRACE:
-                stacktrace = true;
-                input = input.split(" --stacktrace")[0];
-                break;
-            case AS:
-                var = input.split(" --as ")[1];
-                input = input.split(" --as ")[0];
-                break;
-            case NONE:
-                break;
+        String with = "";
+        int imageThreads = 0;
+
+        // flags follow the image setting, the last of a repeated flag counts
+        int flags = input.indexOf(" --", input.indexOf(" use: "));
+        if (flags != -1) {
+            Matcher flag = CRAWL_FLAG.matcher(input.substring(flags));
+            while (flag.find()) {
+                if (flag.group(1) != null) {
+                    stacktrace = true;
+                } else if (flag.group(2) != null) {
+                    var = flag.group(3);
+                } else if (flag.group(4) != null) {
+                    with = flag.group(5);
+                } else {
+                    imageThreads = Integer.parseInt(flag.group(7));
+                }
+            }
+            input = input.substring(0, flags);
         }
 
         try {
@@ -110,24 +131,26 @@ public class CommandLineLogic {
             final int NUMBER_OF_CRAWLERS = Integer.parseInt(input.split(" use: ")[1].split(", ")[0]);
             final int NUMBER_OF_URLS     = Integer.parseInt(input.split(" use: ")[1].split(", ")[1]);
             final boolean IMAGES         = Boolean.parseBoolean(input.split(" use: ")[1].split(", ")[2]);
+            final EnumSet<CrawlOption> OPTIONS = CrawlOption.parse(with);
 
 
-            if (keyword == Keyword.NONE || keyword == Keyword.STACKTRACE) {
-                crawler = new Crawler(URL_TO_CRAWL, NUMBER_OF_CRAWLERS, NUMBER_OF_URLS, IMAGES,
-                        stacktrace, prompt, treeView);
+            if (var == null) {
+                crawler = new Crawler(URL_TO_CRAWL, NUMBER_OF_CRAWLERS, NUMBER_OF_URLS, IMAGES, imageThreads,
+                        stacktrace, OPTIONS, prompt, treeView);
             }
 
-            else if (keyword == Keyword.AS) {
+            else {
 
                 if (!commands.containsKey("^./" + var + " init$")) {
 
-                    Crawler varCrawler = new Crawler(URL_TO_CRAWL, NUMBER_OF_CRAWLERS, NUMBER_OF_URLS, IMAGES,
-                            false, prompt, treeView);
+                    Crawler varCrawler = new Crawler(URL_TO_CRAWL, NUMBER_OF_CRAWLERS, NUMBER_OF_URLS, IMAGES, imageThreads,
+                            stacktrace, OPTIONS, prompt, treeView);
 
                     commands.putIfAbsent("^./" + var + " init$",         (text) -> varCrawler.init());
                     commands.putIfAbsent("^./" + var + " data$",         (text) -> varCrawler.printData(null));
                     commands.putIfAbsent("^./" + var + " data --html$",  (text) -> varCrawler.printData(CrawlType.HTML));
                     commands.putIfAbsent("^./" + var + " data --image$", (text) -> varCrawler.printData(CrawlType.IMAGE));
+                    commands.putIfAbsent("^./" + var + " data --live$",  (text) -> varCrawler.printLiveData());
                     commands.putIfAbsent("^./" + var + " shutdown$",     (text) -> varCrawler.shutdown());
                 }
 
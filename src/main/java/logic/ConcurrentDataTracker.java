@@ -1,57 +1,181 @@
 package logic;
 
 import objects.CrawlType;
+import objects.LatencyHistogram;
 
-import java.io.File;
+import java.io.FilterInputStream;
+import java.io.IOException;
+import java.io.InputStream;
 import java.time.Duration;
-import java.util.ArrayList;
-import java.util.List;
-import java.util.Objects;
-
+import java.util.EnumMap;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.IntSupplier;
+
+/**
+ * ConcurrentDataTracker holds the live metrics of a crawl: striped counters of pages, images, errors and bytes
+ * received, a latency histogram per stage (fetch, parse, write, image) and the depths of the crawl's queues.
+ * Recording never blocks a crawl thread and reading is O(1), however far along the crawl is.
+ */
 class ConcurrentDataTracker {
+    enum Stage { FETCH, PARSE, WRITE, IMAGE }
+
+    private final LongAdder pages = new LongAdder();
+    private final LongAdder pageErrors = new LongAdder();
+    private final LongAdder fetchErrors = new LongAdder();
+    private final LongAdder images = new LongAdder();
+    private final LongAdder imageErrors = new LongAdder();
+    private final LongAdder pageBytes = new LongAdder();
+    private final LongAdder imageBytes = new LongAdder();
+    private final Map<Stage, LatencyHistogram> latencies = new EnumMap<>(Stage.class);
+    private final Map<String, IntSupplier> queues = new LinkedHashMap<>();
+
+    ConcurrentDataTracker() {
+        for (Stage stage : Stage.values()) {
+            latencies.put(stage, new LatencyHistogram());
+        }
+    }
 
+    /** adds a queue whose depth is reported, by name
+     */
+    void track(String queue, IntSupplier depth) {
+        queues.put(queue, depth);
+    }
 
-    String getPrintData(long timePassed, final int NUMBER_OF_URLS, Directory dir, CrawlType crawlType) {
-        String type;
-        String path;
-        int filesWritten;
+    void record(Stage stage, long nanos) {
+        latencies.get(stage).record(nanos);
+    }
 
-        if (crawlType == CrawlType.HTML) { path = dir.getHtmlFolder().getAbsolutePath(); type = "urls"; }
-        else { path = dir.getImagesFolder().getAbsolutePath(); type = "imgs"; }
+    void pageWritten() { pages.increment(); }
 
-        try {
-            filesWritten = Objects.requireNonNull(new File(path).listFiles()).length;
-        }
-        catch (NullPointerException ex) {
-            filesWritten = 0;
-        }
+    void pageFailed() { pageErrors.increment(); }
+
+    void fetchFailed() { fetchErrors.increment(); }
+
+    void imageWritten() { images.increment(); }
+
+    void imageFailed() { imageErrors.increment(); }
+
+    /** counts the bytes read from in as received, of a page or of an image
+     */
+    InputStream count(InputStream in, CrawlType crawlType) {
+        LongAdder bytes = crawlType == CrawlType.HTML ? pageBytes : imageBytes;
+        return new FilterInputStream(in) {
+            @Override
+            public int read() throws IOException {
+                int b = super.read();
+                if (b != -1) {
+                    bytes.increment();
+                }
+                return b;
+            }
+
+            @Override
+            public int read(byte[] buffer, int offset, int length) throws IOException {
+                int read = super.read(buffer, offset, length);
+                if (read > 0) {
+                    bytes.add(read);
+                }
+                return read;
+            }
+        };
+    }
+
+    void received(long bytes, CrawlType crawlType) {
+        (crawlType == CrawlType.HTML ? pageBytes : imageBytes).add(bytes);
+    }
+
+    long getPages() { return pages.sum(); }
+
+    long getImages() { return images.sum(); }
+
+    String getPrintData(long timePassed, final int NUMBER_OF_URLS, CrawlType crawlType) {
+        String type = crawlType == CrawlType.HTML ? "urls" : "imgs";
+        long written = crawlType == CrawlType.HTML ? pages.sum() : images.sum();
+        long errors = crawlType == CrawlType.HTML ? pageErrors.sum() + fetchErrors.sum() : imageErrors.sum();
+        LatencyHistogram latency = latencies.get(crawlType == CrawlType.HTML ? Stage.FETCH : Stage.IMAGE);
+        long[] counts = latency.snapshot();
 
         Duration duration = Duration.ofNanos(timePassed);
 
-        return String.format("crawled for: %02d:%02d:%02d | written: %d/%d | avgSpeed: %.1f " + type + "/s",
+        return String.format("crawled for: %02d:%02d:%02d | written: %d/%d | errors: %d | avgSpeed: %.1f " + type + "/s"
+                        + " | %s | p50: %s p99: %s",
                 duration.toHoursPart(), duration.toMinutesPart(), duration.toSecondsPart(),
-                filesWritten, NUMBER_OF_URLS, filesWritten / (timePassed * Math.pow(10, -9)));
+                written, NUMBER_OF_URLS, errors, written / (timePassed * Math.pow(10, -9)),
+                bytes(crawlType == CrawlType.HTML ? pageBytes.sum() : imageBytes.sum()),
+                millis(LatencyHistogram.percentile(counts, 0.5)), millis(LatencyHistogram.percentile(counts, 0.99)));
     }
 
-    List<String> getLogData(long timePassed, int numberOfImages, String initDate, String path) {
-        int filesWritten = Objects.requireNonNull(new File(path).listFiles()).length;
-        Duration duration = Duration.ofNanos(timePassed);
+    /** a point in time of the counters, the live data is the difference of two
+     */
+    Snapshot snapshot() {
+        return new Snapshot();
+    }
 
-        return new ArrayList<>() {
-            {
-                add(String.format("%d", filesWritten));
-                add(String.format("%d", numberOfImages));
-                add(String.format("%02d:%02d:%02d",
-                        duration.toHoursPart(), duration.toMinutesPart(), duration.toSecondsPart()));
-                add(initDate);
-            }
-        };
+    /** rates, stage latencies and queue depths of the second(s) between two snapshots
+     */
+    String getLiveData(Snapshot before, Snapshot now) {
+        StringBuilder data = window("live", before, now);
 
+        data.append("\n     | queued:");
+        for (Map.Entry<String, IntSupplier> queue : queues.entrySet()) {
+            data.append(' ').append(queue.getKey()).append(": ").append(queue.getValue().getAsInt());
+        }
+        return data.toString();
+    }
 
+    /** totals, rates and stage latencies of a whole crawl, from a snapshot taken before it started
+     */
+    String getSummary(Snapshot before, Snapshot now) {
+        return String.format("crawled %d urls, %d imgs, %s in %.1f s%n",
+                now.pages - before.pages, now.images - before.images, bytes(now.bytes - before.bytes),
+                (now.nanoTime - before.nanoTime) * Math.pow(10, -9)) + window("total", before, now);
     }
 
+    private StringBuilder window(String label, Snapshot before, Snapshot now) {
+        double seconds = Math.max(1, now.nanoTime - before.nanoTime) * Math.pow(10, -9);
 
+        StringBuilder data = new StringBuilder(String.format("%s | %.1f urls/s | %.1f imgs/s | %s/s | errors: %d", label,
+                (now.pages - before.pages) / seconds,
+                (now.images - before.images) / seconds,
+                bytes((long) ((now.bytes - before.bytes) / seconds)),
+                now.errors - before.errors));
 
+        data.append("\n     |");
+        for (Stage stage : Stage.values()) {
+            long[] counts = LatencyHistogram.difference(now.latencies.get(stage), before.latencies.get(stage));
+            data.append(String.format(" %s p50: %s p99: %s |", stage.name().toLowerCase(),
+                    millis(LatencyHistogram.percentile(counts, 0.5)), millis(LatencyHistogram.percentile(counts, 0.99))));
+        }
+        return data;
+    }
+
+    private static String millis(long micros) {
+        return micros < 0 ? "-" : String.format("%.1f ms", micros / 1000.0);
+    }
 
+    private static String bytes(long bytes) {
+        return bytes < 1024 * 1024 ?
+                String.format("%.1f KB", bytes / 1024.0) :
+                String.format("%.1f MB", bytes / (1024.0 * 1024.0));
+    }
 
+    /**
+     * Snapshot is a copy of the counters at one point in time
+     */
+    class Snapshot {
+        private final long nanoTime = System.nanoTime();
+        private final long pages = ConcurrentDataTracker.this.pages.sum();
+        private final long images = ConcurrentDataTracker.this.images.sum();
+        private final long bytes = pageBytes.sum() + imageBytes.sum();
+        private final long errors = pageErrors.sum() + fetchErrors.sum() + imageErrors.sum();
+        private final Map<Stage, long[]> latencies = new EnumMap<>(Stage.class);
+
+        private Snapshot() {
+            for (Stage stage : Stage.values()) {
+                latencies.put(stage, ConcurrentDataTracker.this.latencies.get(stage).snapshot());
+            }
+        }
+    }
 }
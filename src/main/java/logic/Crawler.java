@@ -1,37 +1,74 @@
 package logic;
 
-import io.IO;
+import io.ArchiveCatalog;
+import io.ArchiveReader;
+import io.AssetStore;
+import io.Fetcher;
+import io.HttpClientFetcher;
+import io.IndexWriter;
+import io.JsoupFetcher;
+import io.PageLinks;
+import io.PageLinksWriter;
+import io.PageManifest;
+import io.PageStore;
+import io.PageTable;
+import io.PageTableWriter;
+import io.WarcWriter;
 import javafx.application.Platform;
-import javafx.scene.control.TreeItem;
 import javafx.scene.control.TreeView;
-import objects.CommandPrompt;
+import objects.ArchiveTreeItem;
+import objects.BloomSeenSet;
+import objects.CrawlOption;
 import objects.CrawlType;
-import objects.UniqueConcurrentArrayList;
+import objects.FingerprintSeenSet;
+import objects.PageBuffer;
+import objects.PromptOutput;
+import objects.UniqueConcurrentAppendList;
+import objects.UrlSeenSet;
+import org.jsoup.HttpStatusException;
+import org.jsoup.UnsupportedMimeTypeException;
 import org.jsoup.Jsoup;
 import org.jsoup.nodes.Document;
 import org.jsoup.nodes.Element;
 import org.jsoup.select.Elements;
+import org.jetbrains.annotations.Nullable;
 
 import javax.imageio.ImageIO;
 import java.awt.image.BufferedImage;
 import java.io.*;
+import java.net.MalformedURLException;
+import java.net.SocketTimeoutException;
 import java.net.URL;
 import java.net.UnknownHostException;
+import java.net.http.HttpTimeoutException;
 import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.ReadableByteChannel;
+import java.nio.charset.StandardCharsets;
 import java.time.LocalDateTime;
-import java.time.Month;
 import java.time.format.DateTimeFormatter;
 import java.util.*;
-import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Executor;
 import java.util.concurrent.ExecutorService;
 import java.util.concurrent.Executors;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
 import java.util.concurrent.TimeUnit;
 import java.util.concurrent.atomic.AtomicBoolean;
-import java.util.concurrent.atomic.AtomicInteger;
+import java.util.regex.Pattern;
 
-import static io.IO.writeRootUrl;
 
 import utils.CrawlUtils;
+import utils.LinkRewriter;
 import utils.FontUtils;
 
 /**
@@ -41,56 +78,141 @@ import utils.FontUtils;
     class Crawler {
     // crawl objects
     private final String rootPage;
-    private Set<String> urlsToCrawl;
-    private UniqueConcurrentArrayList<String> uniqueImageUrls;
+    private final UrlSeenSet urlsToCrawl;
+    private final Frontier frontier;
+    private final UniqueConcurrentAppendList<String> uniqueImageUrls;
+    private static final int MAX_CRAWLERS = 256;
+    private static final int MAX_FETCHES_IN_FLIGHT = 10000;
+    private static final int MAX_POOLED_PAGE = 4 * 1024 * 1024;
+    private static final Pattern HTML_TYPES = Pattern.compile("(?i)(text/.*|application/(\\w+\\+)?xml.*)");
     private final int NUMBER_OF_CRAWLERS;
+    private final int NUMBER_OF_IMAGE_DOWNLOADERS;
     private final int NUMBER_OF_URLS;
     private final boolean DOWNLOAD_IMAGES;
+    private final EnumSet<CrawlOption> options;
     private final ExecutorService cThreadPool;
-    private final ExecutorService wThreadPool;
-    private ExecutorService iThreadPool = null;
+    private final ThreadPoolExecutor wThreadPool;
+    private final BlockingQueue<PageBuffer> pageBuffers;
+    private final ThreadPoolExecutor iThreadPool;
+    private final ThreadPoolExecutor pThreadPool;
+    private final Semaphore fetchPermits;
+    private final Fetcher fetcher;
     private final Directory dir;
+    private final AssetStore assetStore;
+    private PageManifest pageManifest = null;
+    private IndexWriter indexWriter = null;
+    private WarcWriter warcWriter = null;
+    private PageTableWriter pageTableWriter = null;
+    private PageLinksWriter pageLinksWriter = null;
     private final boolean STACKTRACE;
     private boolean initialized = false;
     private final String userAgent = "Mozilla/10.0 (Windows NT 10.0) AppleWebKit/538.36 (KHTML, like Gecko) Chrome/69.420 Safari/537.36";
 
     // gui components TODO: look into moving there elsewhere?
-    private final CommandPrompt prompt;
-    private final TreeView<String> treeView;
+    private final PromptOutput prompt;
+    @Nullable
+    private final TreeView<String> treeView; // null when crawling headless
 
     // Objects used to track iterations and time elapsed.
     private final ConcurrentDataTracker dataTracker;
     private long startTime;
-    private long imageStartTime;
     private long timePassed;
     private long imageTimePassed = 0;
     private AtomicBoolean coreThreadsAlive = null;
     private AtomicBoolean imageThreadsAlive = null;
-    private AtomicInteger iteratorCount = new AtomicInteger(0);
-    private AtomicInteger exceptionCount = new AtomicInteger(0);
-    private AtomicInteger imageIteratorCount = new AtomicInteger(0);
-    private AtomicInteger imageExceptionCount = new AtomicInteger(0);
+    private ScheduledExecutorService liveData = null;
+    private final CountDownLatch finished = new CountDownLatch(1);
     private String crawlInitDate;
     private String crawlExeDate = null;
 
-    Crawler(String rootPage, int nrOfCrawlers, int nrOfUrls, boolean downloadImages, final boolean stacktrace,
-            CommandPrompt prompt, TreeView<String> treeView) throws IOException, IllegalArgumentException {
+    /** nrOfImageDownloaders bounds the image downloads running at once, 0 derives it from nrOfCrawlers
+     */
+    Crawler(String rootPage, int nrOfCrawlers, int nrOfUrls, boolean downloadImages, int nrOfImageDownloaders, final boolean stacktrace,
+            EnumSet<CrawlOption> options, PromptOutput prompt, @Nullable TreeView<String> treeView) throws IOException, IllegalArgumentException {
         this.rootPage = rootPage;
-        urlsToCrawl = Collections.newSetFromMap(new ConcurrentHashMap<>(10000)); // initialCapacity: Math.round(1.25f * nrOfUrls) / threadsTerminated crawlers at max?
-        uniqueImageUrls = new UniqueConcurrentArrayList<>();
-        if (nrOfCrawlers > 10)
+        this.options = options;
+        // the frontier only marks urls it accepts, failed fetches aside that stays close to nrOfUrls
+        urlsToCrawl = options.contains(CrawlOption.BLOOM) ?
+                new BloomSeenSet(2 * nrOfUrls, 0.001) :
+                new FingerprintSeenSet(nrOfUrls);
+        uniqueImageUrls = new UniqueConcurrentAppendList<>();
+        // a fetch blocks a thread for as long as the network takes,
+        // virtual threads make that cheap enough to run thousands of them
+        ThreadFactory virtualThreads = options.contains(CrawlOption.VIRTUAL) ? virtualThreadFactory() : null;
+        if (options.contains(CrawlOption.VIRTUAL) && virtualThreads == null) {
+            prompt.println("no virtual threads on this runtime -> crawling with platform threads\n",
+                    Collections.singletonList("syntax-warning"));
+        }
+        boolean async = options.contains(CrawlOption.ASYNC);
+        int maxCrawlers = virtualThreads != null || async ? MAX_FETCHES_IN_FLIGHT : MAX_CRAWLERS;
+        if (nrOfCrawlers > maxCrawlers)
             throw new IllegalArgumentException(
-                    "max 10 threads / threadPool"
+                    "max " + maxCrawlers + " threads / threadPool"
             );
         NUMBER_OF_CRAWLERS = nrOfCrawlers;
         NUMBER_OF_URLS = nrOfUrls;
         DOWNLOAD_IMAGES = downloadImages;
-        cThreadPool = Executors.newFixedThreadPool(NUMBER_OF_CRAWLERS);
-        wThreadPool = Executors.newFixedThreadPool(NUMBER_OF_CRAWLERS);
+        // every host gets its own share of the crawl threads, adapted to how it answers
+        frontier = new Frontier(urlsToCrawl, NUMBER_OF_URLS, this::finishCrawl, NUMBER_OF_CRAWLERS);
+        if (async) {
+            // no thread waits on a fetch, the permits bound how many are in flight, parsing takes the cpus
+            fetcher = new HttpClientFetcher();
+            cThreadPool = Executors.newSingleThreadExecutor();
+            int parsers = Runtime.getRuntime().availableProcessors();
+            pThreadPool = new ThreadPoolExecutor(parsers, parsers, 0L, TimeUnit.MILLISECONDS, new LinkedBlockingQueue<>());
+            fetchPermits = new Semaphore(NUMBER_OF_CRAWLERS);
+        } else if (virtualThreads != null) {
+            // a thread per fetch, the permits bound how many are in flight
+            fetcher = new JsoupFetcher();
+            cThreadPool = Executors.newCachedThreadPool(virtualThreads);
+            pThreadPool = null;
+            fetchPermits = new Semaphore(NUMBER_OF_CRAWLERS);
+        } else {
+            fetcher = new JsoupFetcher();
+            cThreadPool = Executors.newFixedThreadPool(NUMBER_OF_CRAWLERS);
+            pThreadPool = null;
+            fetchPermits = null;
+        }
+        // bounded: when writing falls behind, crawl threads write their own pages instead of queueing more,
+        // writing is cpu and disk work, no need for a thread per crawl thread
+        int writers = Math.min(NUMBER_OF_CRAWLERS, Math.max(2, Runtime.getRuntime().availableProcessors()));
+        wThreadPool = new ThreadPoolExecutor(writers, writers, 0L, TimeUnit.MILLISECONDS,
+                new ArrayBlockingQueue<>(Math.min(NUMBER_OF_CRAWLERS, MAX_CRAWLERS) * 4), new ThreadPoolExecutor.CallerRunsPolicy());
+        // as many page buffers as pages can wait for a Write, a page is rewritten into one and written from it
+        pageBuffers = new ArrayBlockingQueue<>(Math.min(NUMBER_OF_CRAWLERS, MAX_CRAWLERS) * 4 + writers);
+        // images are downloaded while the html crawl runs, with their own threads and a bounded queue,
+        // a full queue holds up the Write thread handing over the image rather than growing without limit.
+        // a download blocks its thread, only virtual threads may go past MAX_CRAWLERS
+        int maxImageDownloaders = virtualThreads != null ? MAX_FETCHES_IN_FLIGHT : MAX_CRAWLERS;
+        if (nrOfImageDownloaders > maxImageDownloaders)
+            throw new IllegalArgumentException(
+                    "max " + maxImageDownloaders + " image threads"
+            );
+        NUMBER_OF_IMAGE_DOWNLOADERS = nrOfImageDownloaders > 0 ?
+                nrOfImageDownloaders : Math.min(NUMBER_OF_CRAWLERS, maxImageDownloaders);
+        iThreadPool = new ThreadPoolExecutor(NUMBER_OF_IMAGE_DOWNLOADERS, NUMBER_OF_IMAGE_DOWNLOADERS, 0L, TimeUnit.MILLISECONDS,
+                new ArrayBlockingQueue<>(Math.min(NUMBER_OF_IMAGE_DOWNLOADERS, MAX_CRAWLERS) * 16),
+                virtualThreads != null ? virtualThreads : Executors.defaultThreadFactory(), (task, executor) -> {
+                    try {
+                        if (!executor.isShutdown()) {
+                            executor.getQueue().put(task);
+                        }
+                    } catch (InterruptedException ex) {
+                        Thread.currentThread().interrupt();
+                    }
+                });
         STACKTRACE = stacktrace;
 
         dir = new Directory(rootPage); // can throw exceptions
+        assetStore = AssetStore.open(dir.getStoreFolder());
         dataTracker = new ConcurrentDataTracker();
+        dataTracker.track("frontier", frontier::size);
+        dataTracker.track("in flight", frontier::inFlight);
+        if (pThreadPool != null) {
+            dataTracker.track("parse", () -> pThreadPool.getQueue().size());
+        }
+        dataTracker.track("write", () -> wThreadPool.getQueue().size());
+        dataTracker.track("images", () -> iThreadPool.getQueue().size());
         this.prompt = prompt;
         this.treeView = treeView;
 
@@ -98,128 +220,394 @@ import utils.FontUtils;
                 9, 23, Collections.singletonList("syntax-reference"));
     }
 
+    /** a factory of virtual threads, null if the runtime has none (they came with java 21)
+     */
+    private static ThreadFactory virtualThreadFactory() {
+        try {
+            // through the public Thread.Builder interfaces, the builder class itself isn't accessible
+            Object builder = Thread.class.getMethod("ofVirtual").invoke(null);
+            builder = Class.forName("java.lang.Thread$Builder$OfVirtual")
+                    .getMethod("name", String.class, long.class).invoke(builder, "crawl-", 0L);
+            return (ThreadFactory) Class.forName("java.lang.Thread$Builder").getMethod("factory").invoke(builder);
+        } catch (ReflectiveOperationException | RuntimeException ex) {
+            return null;
+        }
+    }
+
     /**
-     * Crawl class implements interface Runnable and will be instantiated for every unique url found
+     * Crawl class implements interface Runnable, NUMBER_OF_CRAWLERS instances take urls from the frontier
+     * until it is closed or exhausted.
+     * With virtual threads or async fetching a single instance dispatches the urls instead,
+     * each once one of NUMBER_OF_CRAWLERS fetch permits is free: to a virtual thread of its own,
+     * or to the fetcher with parsing handed on to the parse pool.
      */
     private class Crawl implements Runnable {
-        private final String urlToCrawl;
-
-        private Crawl(String urlToCrawl) {
-            this.urlToCrawl = urlToCrawl;
-        }
 
         @Override
         public void run() {
             try {
-
-                Document doc =
-                        Jsoup.connect(urlToCrawl).
-                                timeout(60 * 1000).
-                                userAgent(userAgent).
-                                get();
-
-                // get all a[href]
-                Elements anchors = doc.select("a[href]");
-                // loop over anchor collection
-                for (Element currentAnchor : anchors) {
-                    // get absolute url from currentAnchor
-                    String nextUrl = currentAnchor.absUrl("href");
-                    // set href value to point towards future local html file
-                    currentAnchor.attr("href", nextUrl.hashCode() + ".html");
-                    // ignore certain values
-                    if (nextUrl.startsWith("#") || !nextUrl.contains(rootPage)) {
-                        continue;
+                if (fetchPermits != null) {
+                    dispatch();
+                    return;
+                }
+                Frontier.Entry entry;
+                while ((entry = frontier.take()) != null) {
+                    try {
+                        crawl(entry, Runnable::run).join();
+                    } finally {
+                        frontier.done(entry);
                     }
-                    // if url hasn't already been saved -> submit a new Runnable
-                    if (urlsToCrawl.add(nextUrl)) {
-                        cThreadPool.submit(new Crawl(nextUrl));
+                }
+            } catch (InterruptedException ex) {
+                Thread.currentThread().interrupt();
+            }
+        }
+
+        private void dispatch() throws InterruptedException {
+            while (true) {
+                fetchPermits.acquire();
+                Frontier.Entry entry = frontier.take();
+                if (entry == null) {
+                    fetchPermits.release();
+                    return;
+                }
+                try {
+                    if (pThreadPool != null) {
+                        crawl(entry, pThreadPool).whenComplete((result, ex) -> finished(entry));
+                    } else {
+                        cThreadPool.execute(() -> {
+                            try {
+                                crawl(entry, Runnable::run).join();
+                            } finally {
+                                finished(entry);
+                            }
+                        });
                     }
+                } catch (RejectedExecutionException ex) {
+                    // shut down meanwhile
+                    finished(entry);
+                    return;
                 }
-                // get all link[rel=stylesheet]
-                Elements links = doc.select("link[rel=stylesheet]");
-                // loop over link collection
-                for (Element currentLink : links) {
-                    // get absolute url from currentLink
-                    String absUrl = currentLink.absUrl("href");
-                    // set href value to point towards local css file
-                    currentLink.attr("href", "../assets/css/" + absUrl.hashCode() + ".css");
+            }
+        }
+
+        private void finished(Frontier.Entry entry) {
+            frontier.done(entry);
+            fetchPermits.release();
+        }
+
+        /** fetches the page of entry (its host's robots.txt first, if not read yet), parses it on parser
+         * and hands it to a Write thread, never completes exceptionally
+         */
+        private CompletableFuture<Void> crawl(Frontier.Entry entry, Executor parser) {
+            CompletableFuture<Void> robots = frontier.needsRobots(entry) ?
+                    readCrawlDelay(entry) :
+                    CompletableFuture.completedFuture(null);
+
+            return robots.thenCompose(ignored -> {
+                // asked conditionally only if a 304 can be followed up, i.e. the page's links were kept
+                PageManifest.Page snapshot = lookupSnapshot(entry.url);
+                PageManifest.Page previous = snapshot != null && snapshot.hasLinks() ? snapshot : null;
+                Map<String, String> headers = new HashMap<>();
+                headers.put("User-Agent", userAgent);
+                if (previous != null && previous.getETag() != null) {
+                    headers.put("If-None-Match", previous.getETag());
+                }
+                if (previous != null && previous.getLastModified() != null) {
+                    headers.put("If-Modified-Since", previous.getLastModified());
                 }
+                long fetchedAt = System.currentTimeMillis();
+                long fetchStart = System.nanoTime();
+
+                return fetcher.fetch(entry.url, headers, 60 * 1000).thenCompose(response -> {
+                    dataTracker.record(ConcurrentDataTracker.Stage.FETCH, System.nanoTime() - fetchStart);
+                    int fetchMillis = (int) (System.currentTimeMillis() - fetchedAt);
+                    return CompletableFuture.runAsync(() -> {
+                        try {
+                            parse(entry, previous, response, fetchedAt, fetchMillis);
+                        } catch (IOException ex) {
+                            throw new UncheckedIOException(ex);
+                        }
+                    }, parser);
+                });
+            }).exceptionally(ex -> {
+                failed(entry, ex instanceof CompletionException && ex.getCause() != null ? ex.getCause() : ex);
+                return null;
+            });
+        }
 
-                wThreadPool.submit(new Write(doc));
+        /** reads the Crawl-delay of the entry's host from its robots.txt, if it has one, and hands it to the frontier,
+         * which holds the host until then, never completes exceptionally
+         */
+        private CompletableFuture<Void> readCrawlDelay(Frontier.Entry entry) {
+            String robots;
+            try {
+                URL url = new URL(entry.url);
+                robots = url.getProtocol() + "://" + url.getAuthority() + "/robots.txt";
+            } catch (MalformedURLException ex) {
+                frontier.robotsRead(entry, 0);
+                return CompletableFuture.completedFuture(null);
+            }
 
-            } catch (IOException ex) {
-                if (STACKTRACE) {
-                    prompt.println(ex.getMessage() + ": " + urlToCrawl + "\n", Collections.singletonList("syntax-error"));
+            return fetcher.fetch(robots, Collections.singletonMap("User-Agent", userAgent), 10 * 1000)
+                    .thenApply(response -> {
+                        if (response.statusCode() != 200) {
+                            return 0L;
+                        }
+                        try {
+                            return CrawlUtils.parseCrawlDelay(new String(response.bodyAsBytes(), StandardCharsets.UTF_8));
+                        } catch (IOException ex) {
+                            return 0L; // unreadable robots.txt, no delay
+                        }
+                    })
+                    .exceptionally(ex -> 0L) // no robots.txt, no delay
+                    .thenAccept(delay -> frontier.robotsRead(entry, delay));
+        }
+
+        private void parse(Frontier.Entry entry, PageManifest.Page previous, Fetcher.Response response,
+                           long fetchedAt, int fetchMillis) throws IOException {
+            String urlToCrawl = entry.url;
+            int depth = entry.depth;
+            long parseStart = System.nanoTime();
+
+            if (response.statusCode() == 429 || response.statusCode() == 503) {
+                // asked to slow down -> back off from the host, try again later
+                if (!frontier.throttled(entry, CrawlUtils.parseRetryAfter(response.header("Retry-After")))) {
+                    throw new HttpStatusException("HTTP error fetching URL", response.statusCode(), urlToCrawl);
                 }
+                return;
+            }
+            if (response.statusCode() >= 400 || response.statusCode() == 304 && previous == null) {
+                // a 304 to an unconditional request has nothing to reuse
+                throw new HttpStatusException("HTTP error fetching URL", response.statusCode(), urlToCrawl);
+            }
+            frontier.succeeded(entry, fetchMillis);
+
+            if (response.statusCode() == 304) {
+                // not modified since the last crawl -> reuse its snapshot and links
+                PageLinks links = previous.readLinks();
+                frontier.commit(entry);
+                for (String nextUrl : links.getLinks()) {
+                    frontier.offer(nextUrl, depth + 1);
+                }
+                wThreadPool.submit(new Write(urlToCrawl, previous, links, fetchedAt, fetchMillis));
+                return;
+            }
+
+            String contentType = response.header("Content-Type");
+            if (contentType != null && !HTML_TYPES.matcher(contentType).matches()) {
+                throw new UnsupportedMimeTypeException("Unhandled content type", contentType, urlToCrawl);
+            }
+            // anchors, stylesheets and images are pointed at the local files as the page streams through
+            LinkRewriter rewriter = new LinkRewriter(response.url(), DOWNLOAD_IMAGES);
+            PageBuffer html = pageBuffers.poll();
+            if (html == null) {
+                html = new PageBuffer(64 * 1024);
+            }
+            try (Reader in = LinkRewriter.reader(dataTracker.count(response.bodyStream(), CrawlType.HTML), response.charset())) {
+                rewriter.rewrite(in, html);
+            }
+            html.finish();
+            dataTracker.record(ConcurrentDataTracker.Stage.PARSE, System.nanoTime() - parseStart);
+            List<String> outlinks = new ArrayList<>();
+            // the page is as good as written, commit it before offering its links so they fit the budget left
+            frontier.commit(entry);
+
+            for (String nextUrl : rewriter.getLinks()) {
+                // ignore certain values
+                if (nextUrl.startsWith("#") || !nextUrl.contains(rootPage)) {
+                    continue;
+                }
+                outlinks.add(nextUrl);
+                // queue url unless already seen or the page budget is covered
+                frontier.offer(nextUrl, depth + 1);
+            }
+
+            wThreadPool.submit(new Write(urlToCrawl, response.url(), html, rewriter.getTitle(), rewriter.getImages(),
+                    response.header("ETag"), response.header("Last-Modified"), outlinks, fetchedAt, fetchMillis, response.statusCode()));
+        }
+
+        private void failed(Frontier.Entry entry, Throwable ex) {
+            if (ex instanceof UncheckedIOException) {
+                ex = ex.getCause();
+            }
+            if (ex instanceof RejectedExecutionException) {
+                // shut down meanwhile
+                return;
+            }
+            dataTracker.fetchFailed();
+            if (ex instanceof SocketTimeoutException || ex instanceof HttpTimeoutException) {
+                frontier.timedOut(entry);
+            }
+            if (STACKTRACE) {
+                prompt.println(ex.getMessage() + ": " + entry.url + "\n", Collections.singletonList("syntax-error"));
             }
         }
     }
 
+    /** the previous snapshot of url, if it was crawled with the same image setting as this crawl
+     */
+    @Nullable
+    private PageManifest.Page lookupSnapshot(String url) {
+        PageManifest.Page previous = pageManifest.lookup(url);
+        return previous != null && previous.isWithImages() == DOWNLOAD_IMAGES ? previous : null;
+    }
+
     /**
-     * Write class is responsible for writing a crawled JSoup Document to file
+     * Write class is responsible for writing a crawled page, its links already rewritten, to file,
+     * or for linking the previous snapshot of a page that hasn't changed
      */
     private class Write implements Runnable {
-        private final Document document;
+        private final String url;
+        private final String location;
+        private final PageBuffer html;
+        private final String title;
+        private final List<String> images;
+        private final String eTag;
+        private final String lastModified;
+        private final List<String> links;
+        private final PageManifest.Page previous;
+        private final PageLinks previousLinks;
+        private final long fetchedAt;
+        private final int fetchMillis;
+        private final int status;
+
+        private Write(String url, String location, PageBuffer html, String title, List<String> images,
+                      String eTag, String lastModified, List<String> links, long fetchedAt, int fetchMillis, int status) {
+            this.url = url;
+            this.location = location;
+            this.html = html;
+            this.title = title;
+            this.images = images;
+            this.eTag = eTag;
+            this.lastModified = lastModified;
+            this.links = links;
+            this.previous = null;
+            this.previousLinks = null;
+            this.fetchedAt = fetchedAt;
+            this.fetchMillis = fetchMillis;
+            this.status = status;
+        }
 
-        private Write(Document document) {
-            this.document = document;
+        private Write(String url, PageManifest.Page previous, PageLinks previousLinks, long fetchedAt, int fetchMillis) {
+            this.url = url;
+            this.location = null;
+            this.html = null;
+            this.title = null;
+            this.images = null;
+            this.eTag = null;
+            this.lastModified = null;
+            this.links = null;
+            this.previous = previous;
+            this.previousLinks = previousLinks;
+            this.fetchedAt = fetchedAt;
+            this.fetchMillis = fetchMillis;
+            this.status = 304;
         }
 
+        /** every page handed to a Write has a page of the budget reserved, the frontier ends the crawl
+         */
         @Override
         public void run() {
-            if (iteratorCount.get() <= (NUMBER_OF_URLS - NUMBER_OF_CRAWLERS)) {
-
-                if (DOWNLOAD_IMAGES) {
-
-                    Elements images = document.select("picture source[srcSet], img[srcSet]");
-                    for (Element e : images) {
-                        String url;
-
-                        if (e.attr("src").equals("") && !e.attr("srcSet").equals("")) {
-                            url = CrawlUtils.convertSrcSetToUrl(e.attr("srcSet"));
-                        } else if (!e.attr("src").equals("") && e.attr("srcSet").equals("")) {
-                            url = e.attr("src");
-                        } else {
-                            url = CrawlUtils.convertSrcSetToUrl(e.attr("srcSet"));
-                        }
+            long start = System.nanoTime();
+            try {
+                if (html != null) {
+                    write();
+                } else {
+                    relink();
+                }
+                dataTracker.pageWritten();
+            }
+            catch (IOException ex) {
+                dataTracker.pageFailed();
+                ex.printStackTrace();
+            }
+            finally {
+                if (html != null && html.capacity() <= MAX_POOLED_PAGE) {
+                    html.reset();
+                    pageBuffers.offer(html);
+                }
+                dataTracker.record(ConcurrentDataTracker.Stage.WRITE, System.nanoTime() - start);
+            }
+        }
 
-                        e.parent().append("<img src=" + '"' + url + '"' + ">");
-                        e.remove();
+        private void write() throws IOException {
+            if (DOWNLOAD_IMAGES) {
+                for (String imageUrl : images) {
+                    if (uniqueImageUrls.add(imageUrl)) {
+                        iThreadPool.execute(new ImageDownloader(imageUrl));
                     }
+                }
+            }
 
-                    images = document.select("img[src]");
-                    for (Element img : images) {
-                        String url = img.absUrl("src");
+            String fileName = location.hashCode() + ".html";
+            File file = new File(dir.getHtmlFolder().getAbsolutePath() + "\\" + fileName);
+            ByteBuffer bytes = html.bytes();
+            String hash = html.getHash();
+            PageManifest.Page previous = lookupSnapshot(url);
+
+            if (previous != null && previous.getHash().equals(hash) && warcWriter == null) {
+                // served in full but unchanged -> share the previous snapshot,
+                // a warc crawl appends it to its segment rather than leave a file per page
+                PageStore.link(previous.getSnapshot(), file);
+            } else if (previous != null && options.contains(CrawlOption.DELTA)) {
+                // a delta is made of lines, the one case the page is decoded to a String
+                PageStore.write(file, html.toString(), previous.getSnapshot());
+            } else {
+                writeFull(file, bytes);
+            }
 
-                        String extensionType = CrawlUtils.getExtensionType(url);
+            if (indexWriter != null) {
+                indexWriter.add(fileName, title, ArchiveReader.text(ArchiveReader.chars(bytes)));
+            }
+            if (pageTableWriter != null) {
+                pageTableWriter.append(new PageTable.Entry(fileName, url, hash, title, html.size(), fetchedAt, fetchMillis, status));
+            }
+            pageManifest.put(url, new PageManifest.Page(eTag, lastModified, hash, dir.getHomeFolder(), fileName,
+                    appendLinks(fileName, links, images), DOWNLOAD_IMAGES));
+        }
 
-                        if (!extensionType.equals("noContentType")) {
-                            img.attr("src", "../assets/images/" + url.hashCode() + "." + extensionType);
-                            uniqueImageUrls.add(url);
-                        } else {
-                            img.attr("alt", "noContentType found");
-                        }
+        private void relink() throws IOException {
+            File file = new File(dir.getHtmlFolder().getAbsolutePath() + "\\" + previous.getSnapshot().getName());
+            if (warcWriter != null) {
+                // whatever the previous snapshot is, a warc crawl keeps its pages in its segment
+                warcWriter.append(file.getName(), url, ArchiveReader.bytes(previous.getSnapshot()));
+            } else {
+                PageStore.link(previous.getSnapshot(), file);
+            }
 
+            if (DOWNLOAD_IMAGES) {
+                for (String imageUrl : previousLinks.getImages()) {
+                    if (uniqueImageUrls.add(imageUrl)) {
+                        iThreadPool.execute(new ImageDownloader(imageUrl));
                     }
-                } // end of if (DOWNLOAD_IMAGES)
-
-                try (FileWriter writer = new FileWriter(
-                        new File(dir.getHtmlFolder().getAbsolutePath() + "\\" + document.location().hashCode() + ".html"))) {
-                    writer.write(document.html());
-                }
-                catch (IOException ex) {
-                    exceptionCount.incrementAndGet();
-                    ex.printStackTrace();
-                }
-                finally {
-                    iteratorCount.incrementAndGet();
                 }
+            }
 
-            } else { // end of iteratorCount <= NUMBER_OF_URLS
+            // read from the previous snapshot, a segment record of this crawl may not be flushed yet
+            String title = PageTable.title(previous.getSnapshot());
+            if (indexWriter != null) {
+                indexWriter.add(file.getName(), title, ArchiveReader.text(previous.getSnapshot()));
+            }
+            if (pageTableWriter != null) {
+                pageTableWriter.append(new PageTable.Entry(file.getName(), url, previous.getHash(), title,
+                        PageTable.size(previous.getSnapshot()), fetchedAt, fetchMillis, status));
+            }
+            pageManifest.put(url, previous.movedTo(dir.getHomeFolder(),
+                    appendLinks(file.getName(), previousLinks.getLinks(), previousLinks.getImages())));
+        }
 
-                if (coreThreadsAlive.get()) {
-                    shutdownExecutorService(); // is synchronized
-                }
+        /** keeps the links of a page aside for a 304 of the next crawl, -1 if this crawl can't
+         */
+        private long appendLinks(String fileName, List<String> links, List<String> images) throws IOException {
+            return pageLinksWriter != null ? pageLinksWriter.append(fileName, links, images) : -1;
+        }
+
+        private void writeFull(File file, ByteBuffer html) throws IOException {
+            if (warcWriter != null) {
+                warcWriter.append(file.getName(), url, html);
+            } else {
+                PageStore.write(file, html);
             }
         }
     }
@@ -236,40 +624,101 @@ import utils.FontUtils;
 
         @Override
         public void run() {
-            try {
+            File file = new File(dir.getImagesFolder().getAbsolutePath() + "\\" + url.hashCode() + "." + CrawlUtils.getExtensionType(url));
+            long start = System.nanoTime();
 
-                byte[] bytes = Jsoup.connect(url).
-                        timeout(60 * 1000).
-                        userAgent("Mozilla").
-                        ignoreContentType(true).
-                        execute().
-                        bodyAsBytes();
-
-                ByteBuffer buffer = ByteBuffer.wrap(bytes);
+            try {
 
-                String fileName = dir.getImagesFolder().getAbsolutePath() + "\\" + url.hashCode() + "." + CrawlUtils.getExtensionType(url);
+                AssetStore.Asset previous = assetStore.lookup(url);
+                Fetcher.Response response = fetchAsset(url, previous);
 
-                String[] fileNameParts = fileName.split("\\.");
-                String format = fileNameParts[fileNameParts.length - 1];
+                AssetStore.Asset asset;
+                if (response.statusCode() == 304) {
+                    // unchanged since it was stored -> nothing to download or write
+                    asset = previous;
+                }
+                else if (options.contains(CrawlOption.RAW_IMAGES)) {
+                    asset = storeRaw(response);
+                }
+                else {
+                    String format = CrawlUtils.getExtensionType(url);
+
+                    byte[] body = response.bodyAsBytes();
+                    dataTracker.received(body.length, CrawlType.IMAGE);
+                    InputStream in = new ByteArrayInputStream(body);
+                    BufferedImage bufferedImage = ImageIO.read(in);
+                    ByteArrayOutputStream out = new ByteArrayOutputStream();
+                    if (bufferedImage == null || !ImageIO.write(bufferedImage, format, out)) {
+                        throw new IllegalArgumentException("unsupported image");
+                    }
 
-                File file = new File(fileName);
-                BufferedImage bufferedImage;
+                    asset = assetStore.store(url, Channels.newChannel(new ByteArrayInputStream(out.toByteArray())),
+                            response.header("ETag"), response.header("Last-Modified"));
+                }
 
-                InputStream in = new ByteArrayInputStream(buffer.array());
-                bufferedImage = ImageIO.read(in);
-                ImageIO.write(bufferedImage, format, file);
+                assetStore.link(asset, file, dir.getAssetsFolder());
+                dataTracker.imageWritten();
 
             } catch (IOException | IllegalArgumentException ex) {
-                imageExceptionCount.incrementAndGet();
+                dataTracker.imageFailed();
                 if (STACKTRACE) {
                     prompt.println(
                             ex.getMessage() + ": " + url + "[." + CrawlUtils.getExtensionType(url) + "]\n",
                             Collections.singletonList("syntax-error"));
                 }
             } finally {
-                imageIteratorCount.incrementAndGet();
+                dataTracker.record(ConcurrentDataTracker.Stage.IMAGE, System.nanoTime() - start);
+            }
+        }
+
+        /** streams the response body into the asset store as is, the body never has to fit in memory
+         */
+        private AssetStore.Asset storeRaw(Fetcher.Response response) throws IOException {
+            BufferedInputStream in = new BufferedInputStream(dataTracker.count(response.bodyStream(), CrawlType.IMAGE));
+
+            // enough of the head to tell the format from its magic bytes
+            in.mark(16);
+            byte[] head = new byte[16];
+            int length = 0;
+            int read;
+            while (length < head.length && (read = in.read(head, length, head.length - length)) != -1) {
+                length += read;
+            }
+            in.reset();
+            if (CrawlUtils.sniffImageType(ByteBuffer.wrap(head, 0, length)) == null) {
+                in.close();
+                throw new IllegalArgumentException("not an image");
             }
+
+            try (ReadableByteChannel channel = Channels.newChannel(in)) {
+                return assetStore.store(url, channel, response.header("ETag"), response.header("Last-Modified"));
+            }
+        }
+    }
+
+    /** GETs an asset, conditional on the version in the asset store if there is one
+     * -> status 304 means previous is still current
+     */
+    private Fetcher.Response fetchAsset(String url, @Nullable AssetStore.Asset previous) throws IOException {
+        Map<String, String> headers = new HashMap<>();
+        headers.put("User-Agent", "Mozilla");
+        if (previous != null && previous.getETag() != null) {
+            headers.put("If-None-Match", previous.getETag());
         }
+        if (previous != null && previous.getLastModified() != null) {
+            headers.put("If-Modified-Since", previous.getLastModified());
+        }
+
+        Fetcher.Response response = Fetcher.await(fetcher.stream(url, headers, 60 * 1000));
+        if (response.statusCode() >= 400) {
+            response.discard();
+            throw new HttpStatusException("HTTP error fetching URL", response.statusCode(), url);
+        }
+        if (response.statusCode() == 304) {
+            // no body to read, the connection goes back to the pool
+            response.discard();
+        }
+        return response;
     }
 
     /** downloads all stylesheets found in rootPage, called by this::init prior to crawl start.
@@ -277,25 +726,26 @@ import utils.FontUtils;
     private void downloadStylesheets() {
         try {
 
-            Document doc = Jsoup.
-                    connect(rootPage).
-                    timeout(30 * 1000).
-                    userAgent(userAgent).
-                    get();
+            Fetcher.Response root = Fetcher.await(fetcher.fetch(rootPage,
+                    Collections.singletonMap("User-Agent", userAgent), 30 * 1000));
+            if (root.statusCode() >= 400) {
+                throw new HttpStatusException("HTTP error fetching URL", root.statusCode(), rootPage);
+            }
+            Document doc = Jsoup.parse(root.bodyStream(), root.charset(), root.url());
 
             Elements links = doc.select("link[rel=stylesheet]");
 
             for (Element currentLink : links) {
                 String absUrl = currentLink.absUrl("href");
                 File outputFile = new File(dir.getCssFolder().getAbsolutePath() + "\\" + absUrl.hashCode() + ".css");
-                BufferedReader reader = new BufferedReader(new InputStreamReader(new URL(absUrl).openStream()));
-                BufferedWriter writer = new BufferedWriter(new FileWriter(outputFile));
-                String line;
-                while ((line = reader.readLine()) != null) {
-                    writer.write(line);
-                }
-                reader.close();
-                writer.close();
+
+                AssetStore.Asset previous = assetStore.lookup(absUrl);
+                Fetcher.Response response = fetchAsset(absUrl, previous);
+                AssetStore.Asset asset = response.statusCode() == 304 ? previous :
+                        assetStore.store(absUrl, Channels.newChannel(response.bodyStream()),
+                                response.header("ETag"), response.header("Last-Modified"));
+
+                assetStore.link(asset, outputFile, dir.getAssetsFolder());
             }
         }
         catch (UnknownHostException ex) {
@@ -308,35 +758,39 @@ import utils.FontUtils;
     }
 
     /**
-     * shuts down the crawling process - called by Runnable Writer or by user if called through gui
+     * shuts down the crawling process - called once the frontier is done or by user if called through gui
      */
     private synchronized void shutdownExecutorService() {
+        if (!coreThreadsAlive.get()) {
+            // already shut down, e.g. by the user while the frontier finished
+            return;
+        }
+        frontier.close();
         cThreadPool.shutdownNow();
+        if (pThreadPool != null) {
+            pThreadPool.shutdownNow();
+        }
         wThreadPool.shutdownNow();
         coreThreadsAlive.set(false);
         setTimePassed(CrawlType.HTML);
+        closeWriters();
+
+        // no new images after this, let the queued downloads finish
+        iThreadPool.shutdown();
 
         if (DOWNLOAD_IMAGES) {
-            // wonky solution attempt ->
-            ExecutorService executorService = Executors.newFixedThreadPool(1);
+            ExecutorService executorService = Executors.newSingleThreadExecutor();
             executorService.execute(() -> {
-                imageStartTime = System.nanoTime();
-                iThreadPool = Executors.newFixedThreadPool(NUMBER_OF_CRAWLERS);
-                imageThreadsAlive = new AtomicBoolean(true);
-
-                for (String url : uniqueImageUrls) {
-                    iThreadPool.submit(new ImageDownloader(url));
-                }
-                iThreadPool.shutdown();
-
                 try {
                     iThreadPool.awaitTermination(Integer.MAX_VALUE, TimeUnit.HOURS);
                     imageThreadsAlive.set(false);
                     setTimePassed(CrawlType.IMAGE);
                     crawlExeDate = LocalDateTime.now().format(DateTimeFormatter.ofPattern("yyyy-MM-dd HH:mm:ss"));
+                    saveManifests();
                     updateControllerTreeView();
                     log();
-                    printExeMsg(timePassed + imageTimePassed);
+                    printExeMsg(Math.max(timePassed, imageTimePassed));
+                    finished.countDown();
                 } catch (InterruptedException ex) {
                     Thread.currentThread().interrupt();
                 }
@@ -347,105 +801,105 @@ import utils.FontUtils;
 
         else {
             crawlExeDate = LocalDateTime.now().format(DateTimeFormatter.ofPattern("yyyy-MM-dd HH:mm:ss"));
+            saveManifests();
             updateControllerTreeView();
             log();
             printExeMsg(timePassed);
+            finished.countDown();
         }
     }
 
-    /**
-     * updates the gui's treeView to display updated domains, runs after crawl finishes.
+    /** persists what the next crawl needs to skip unchanged pages and assets
      */
-    private synchronized void updateControllerTreeView() {
-        // block-head solution ->
-        Platform.runLater(() -> {
+    private void saveManifests() {
+        try {
+            assetStore.save();
+            pageManifest.save();
+        } catch (IOException ex) {
+            prompt.println("failed to save crawl manifests: " + ex.getMessage() + "\n", Collections.singletonList("syntax-error"));
+        } finally {
+            pageManifest.release();
+        }
+    }
 
-            String action = "domain + year + month + day";
-            TreeItem<String> domainTreeItem = new TreeItem<>(dir.getName());
-            TreeItem<String> yearTreeItem = new TreeItem<>(dir.getYear());
-            TreeItem<String> monthTreeItem = new TreeItem<>(dir.getMonth());
-            TreeItem<String> dayTreeItem = new TreeItem<>(dir.getDay());
-
-            for (TreeItem<String> currentDomainItem : treeView.getRoot().getChildren()) {
-                if (currentDomainItem.getValue().equals(dir.getName())) {
-                    // domain treeItem already exists
-                    action = "year + month + day";
-                    domainTreeItem = currentDomainItem;
-
-                    for (TreeItem<String> currentYearItem : currentDomainItem.getChildren()) {
-                        if (currentYearItem.getValue().equals(dir.getYear())) {
-                            // year treeItem already exists
-                            action = "month + day";
-                            yearTreeItem = currentYearItem;
-
-                            for (TreeItem<String> currentMonthItem : currentYearItem.getChildren()) {
-                                if (currentMonthItem.getValue().equals(dir.getMonth())) {
-                                    // month threeItem already exists ->
-                                    // ADD ONLY DAY
-                                    action = "day";
-                                    monthTreeItem = currentMonthItem;
-                                    break;
-                                }
-                            }
-                        }
-                    }
-                }
+    /** called by the frontier when the page budget is spent or the site runs out of urls before,
+     * lets the queued Write threads finish before shutting down
+     */
+    private void finishCrawl() {
+        ExecutorService executorService = Executors.newSingleThreadExecutor();
+        executorService.execute(() -> {
+            wThreadPool.shutdown();
+            try {
+                wThreadPool.awaitTermination(Integer.MAX_VALUE, TimeUnit.HOURS);
+            } catch (InterruptedException ex) {
+                Thread.currentThread().interrupt();
             }
+            shutdownExecutorService();
+        });
+        executorService.shutdown();
+    }
 
-            switch (action) {
-                case "day":
-                    dayTreeItem.setGraphic(FontUtils.createLeafView());
-                    monthTreeItem.getChildren().add(dayTreeItem);
-                    monthTreeItem.getChildren().sort(Comparator.comparingInt(o -> Integer.parseInt(o.getValue().split("(ST|ND|RD|TH)", 2)[0])));
-                    break;
-                case "month + day":
-                    dayTreeItem.setGraphic(FontUtils.createLeafView());
-                    monthTreeItem.setGraphic(FontUtils.createBranchView());
-                    monthTreeItem.getChildren().add(dayTreeItem);
-                    monthTreeItem.getChildren().sort(Comparator.comparingInt(o -> Integer.parseInt(o.getValue().split("(ST|ND|RD|TH)", 2)[0])));
-                    yearTreeItem.getChildren().add(monthTreeItem);
-                    yearTreeItem.getChildren().sort(Comparator.comparingInt(o -> Month.valueOf(o.getValue()).getValue()));
-                    break;
-                case "year + month + day":
-                    dayTreeItem.setGraphic(FontUtils.createLeafView());
-                    monthTreeItem.setGraphic(FontUtils.createBranchView());
-                    yearTreeItem.setGraphic(FontUtils.createBranchView());
-                    monthTreeItem.getChildren().add(dayTreeItem);
-                    monthTreeItem.getChildren().sort(Comparator.comparingInt(o -> Integer.parseInt(o.getValue().split("(ST|ND|RD|TH)", 2)[0])));
-                    yearTreeItem.getChildren().add(monthTreeItem);
-                    yearTreeItem.getChildren().sort(Comparator.comparingInt(o -> Month.valueOf(o.getValue()).getValue()));
-                    domainTreeItem.getChildren().add(yearTreeItem);
-                    domainTreeItem.getChildren().sort(Comparator.comparingInt(o -> Integer.parseInt(o.getValue())));
-                    break;
-                case "domain + year + month + day":
-                    dayTreeItem.setGraphic(FontUtils.createLeafView());
-                    monthTreeItem.setGraphic(FontUtils.createBranchView());
-                    yearTreeItem.setGraphic(FontUtils.createBranchView());
-                    domainTreeItem.setGraphic(FontUtils.createRootView());
-                    monthTreeItem.getChildren().add(dayTreeItem);
-                    monthTreeItem.getChildren().sort(Comparator.comparingInt(o -> Integer.parseInt(o.getValue().split("(ST|ND|RD|TH)", 2)[0])));
-                    yearTreeItem.getChildren().add(monthTreeItem);
-                    yearTreeItem.getChildren().sort(Comparator.comparingInt(o -> Month.valueOf(o.getValue()).getValue()));
-                    domainTreeItem.getChildren().add(yearTreeItem);
-                    domainTreeItem.getChildren().sort(Comparator.comparingInt(o -> Integer.parseInt(o.getValue())));
-                    treeView.getRoot().getChildren().add(domainTreeItem);
-                    treeView.getRoot().getChildren().sort(Comparator.comparing(TreeItem::getValue));
-                    break;
-                default:
-                    prompt.println("failed to update the TreeView\n", Collections.singletonList("syntax-error"));
+    /** closes the crawl's search index, segment, page table and page links once every Write thread has finished
+     */
+    private void closeWriters() {
+        if (indexWriter == null && warcWriter == null && pageTableWriter == null && pageLinksWriter == null) {
+            return;
+        }
+        ExecutorService executorService = Executors.newSingleThreadExecutor();
+        executorService.execute(() -> {
+            try {
+                wThreadPool.awaitTermination(Integer.MAX_VALUE, TimeUnit.HOURS);
+            } catch (InterruptedException ex) {
+                Thread.currentThread().interrupt();
+            }
+            if (indexWriter != null) {
+                indexWriter.close();
+            }
+            if (warcWriter != null) {
+                try {
+                    warcWriter.close();
+                } catch (IOException ex) {
+                    prompt.println("failed to close segment: " + ex.getMessage() + "\n", Collections.singletonList("syntax-error"));
+                }
+            }
+            if (pageTableWriter != null) {
+                try {
+                    pageTableWriter.close();
+                } catch (IOException ex) {
+                    prompt.println("failed to close page table: " + ex.getMessage() + "\n", Collections.singletonList("syntax-error"));
+                }
             }
+            if (pageLinksWriter != null) {
+                try {
+                    pageLinksWriter.close();
+                } catch (IOException ex) {
+                    prompt.println("failed to close page links: " + ex.getMessage() + "\n", Collections.singletonList("syntax-error"));
+                }
+            }
+        });
+        executorService.shutdown();
+    }
 
+    /**
+     * updates the gui's treeView to display updated domains, runs after crawl finishes.
+     */
+    private synchronized void updateControllerTreeView() {
+        if (treeView == null) {
+            return;
+        }
+        Platform.runLater(() -> {
+            if (treeView.getRoot() instanceof ArchiveTreeItem) {
+                ((ArchiveTreeItem) treeView.getRoot()).add(dir.getName(), dir.getYear(), dir.getMonth(), dir.getDay());
+            } else {
+                prompt.println("failed to update the TreeView\n", Collections.singletonList("syntax-error"));
+            }
         });
     }
 
     private void log() {
         if (initialized) {
             if (crawlExeDate != null) {
-                boolean success = IO.writeLog(dir.getHomeFolder().getAbsolutePath(),
-                        dataTracker.getLogData(
-                                timePassed + imageTimePassed,
-                                imageIteratorCount.get() - imageExceptionCount.get(),
-                                dir.getDirInitDate(), dir.getHtmlFolder().getAbsolutePath()));
+                boolean success = catalog(true);
                 if (success) {
                 } else {
                     prompt.println("failed to log crawl\n", Collections.singletonList("syntax-error"));
@@ -459,6 +913,25 @@ import utils.FontUtils;
         }
     }
 
+    /** adds the crawl to the archive catalog, once it's logged with its counts, runtime and size
+     */
+    private boolean catalog(boolean logged) {
+        try {
+            ArchiveCatalog.open().put(new ArchiveCatalog.Crawl(dir.getName(), dir.getYear(), dir.getMonth(), dir.getDay(),
+                    rootPage,
+                    logged ? PageStore.list(dir.getHtmlFolder()).size() : 0,
+                    logged ? (int) dataTracker.getImages() : 0,
+                    logged ? Math.max(timePassed, imageTimePassed) : 0, // the image downloads overlap the html crawl
+                    dir.getDirInitDate(),
+                    logged ? ArchiveCatalog.sizeOf(dir.getHomeFolder()) : 0,
+                    logged));
+            return true;
+        } catch (IOException ex) {
+            ex.printStackTrace();
+            return false;
+        }
+    }
+
     /** used for keeping track of time elapsed, since this::init called
      */
     private void setTimePassed(CrawlType crawlType) {
@@ -466,7 +939,7 @@ import utils.FontUtils;
             timePassed = System.nanoTime() - startTime;
 
         else if (crawlType == CrawlType.IMAGE)
-            imageTimePassed = System.nanoTime() - imageStartTime;
+            imageTimePassed = System.nanoTime() - startTime;
     }
 
     /* public methods ->
@@ -478,22 +951,65 @@ import utils.FontUtils;
         initialized = true;
         crawlInitDate = LocalDateTime.now().format(DateTimeFormatter.ofPattern("yyyy-MM-dd HH:mm:ss"));
 
-        writeRootUrl(rootPage, dir.getHomeFolder().getAbsolutePath());
+        if (!catalog(false)) {
+            prompt.println("failed to add crawl to the catalog\n", Collections.singletonList("syntax-error"));
+        }
         downloadStylesheets();
+        // held until the crawl is done, see saveManifests()
+        pageManifest = PageManifest.open(dir.getDomainFolder());
+
+        try {
+            indexWriter = new IndexWriter(dir.getHomeFolder());
+        } catch (IOException ex) {
+            // search falls back to indexing the html files on first use
+            prompt.println("failed to init search index: " + ex.getMessage() + "\n", Collections.singletonList("syntax-warning"));
+        }
+
+        try {
+            pageTableWriter = new PageTableWriter(dir.getHomeFolder());
+        } catch (IOException ex) {
+            // titles are then read from the pages themselves
+            prompt.println("failed to init page table: " + ex.getMessage() + "\n", Collections.singletonList("syntax-warning"));
+        }
+
+        try {
+            pageLinksWriter = new PageLinksWriter(dir.getHomeFolder());
+        } catch (IOException ex) {
+            // pages are then fetched in full by the next crawl
+            prompt.println("failed to init page links: " + ex.getMessage() + "\n", Collections.singletonList("syntax-warning"));
+        }
+
+        if (options.contains(CrawlOption.WARC)) {
+            try {
+                warcWriter = new WarcWriter(dir.getHtmlFolder());
+            } catch (IOException ex) {
+                prompt.println("failed to init segment, writing one file per page: " + ex.getMessage() + "\n",
+                        Collections.singletonList("syntax-warning"));
+            }
+        }
 
         startTime = System.nanoTime();
         prompt.println("root dependencies setup finished -> crawl initiated\n", Collections.singletonList("syntax-output"));
         coreThreadsAlive = new AtomicBoolean(true);
-        cThreadPool.execute(new Crawl(rootPage));
+        imageThreadsAlive = new AtomicBoolean(DOWNLOAD_IMAGES);
+        frontier.offer(rootPage, 0);
+        for (int i = 0; i < (fetchPermits != null ? 1 : NUMBER_OF_CRAWLERS); i++) {
+            cThreadPool.execute(new Crawl());
+        }
     }
 
-    /** invokes a shutdown of all non image threads
+    /** invokes a shutdown of all threads still running
      */
     void shutdown() {
         if (initialized) {
             if (coreThreadsAlive.get() || (imageThreadsAlive != null && imageThreadsAlive.get())) {
                 prompt.println("shutdown invoked\n", Collections.singletonList("syntax-output"));
-                shutdownExecutorService();
+                if (coreThreadsAlive.get()) {
+                    shutdownExecutorService();
+                } else {
+                    // html crawl is done, stop the image downloads still queued
+                    iThreadPool.shutdownNow();
+                }
             } else {
                 prompt.println("crawler is already shutdown\n", Collections.singletonList("syntax-warning"));
             }
@@ -511,7 +1027,7 @@ import utils.FontUtils;
                     setTimePassed(CrawlType.HTML);
                 }
                 prompt.println(dataTracker.getPrintData(
-                        timePassed, NUMBER_OF_URLS, dir, CrawlType.HTML) + "\n",
+                        timePassed, NUMBER_OF_URLS, CrawlType.HTML) + "\n",
                         Collections.singletonList("syntax-output"));
 
 
@@ -528,7 +1044,7 @@ import utils.FontUtils;
                 }
                 if (DOWNLOAD_IMAGES) {
                     prompt.println(dataTracker.getPrintData(
-                            imageTimePassed, uniqueImageUrls.size(), dir, CrawlType.IMAGE) + "\n",
+                            imageTimePassed, uniqueImageUrls.size(), CrawlType.IMAGE) + "\n",
                             Collections.singletonList("syntax-output"));
                 } else {
                     prompt.println("crawler has not been instructed to crawl for images\n", Collections.singletonList("syntax-warning"));
@@ -552,7 +1068,7 @@ import utils.FontUtils;
                 }
 
                 prompt.println(dataTracker.getPrintData(
-                        timePassed, NUMBER_OF_URLS, dir, CrawlType.HTML) + str,
+                        timePassed, NUMBER_OF_URLS, CrawlType.HTML) + str,
                         Collections.singletonList("syntax-output"));
 
                 if (imageThreadsAlive != null && imageThreadsAlive.get()) {
@@ -561,7 +1077,7 @@ import utils.FontUtils;
 
                 if (DOWNLOAD_IMAGES) {
                     prompt.println(dataTracker.getPrintData(
-                            imageTimePassed, uniqueImageUrls.size(), dir, CrawlType.IMAGE) + "\n",
+                            imageTimePassed, uniqueImageUrls.size(), CrawlType.IMAGE) + "\n",
                             Collections.singletonList("syntax-output"));
                 }
             } else {
@@ -570,6 +1086,50 @@ import utils.FontUtils;
         }
     }
 
+    /** prints the rates, stage latencies and queue depths of the crawl every second, until called again
+     * or the crawl is done
+     */
+    synchronized void printLiveData() {
+        if (!initialized) {
+            printInitMsg();
+            return;
+        }
+        if (liveData != null) {
+            liveData.shutdownNow();
+            liveData = null;
+            prompt.println("live data stopped\n", Collections.singletonList("syntax-output"));
+            return;
+        }
+        liveData = Executors.newSingleThreadScheduledExecutor(task -> {
+            Thread thread = new Thread(task, "live-data");
+            thread.setDaemon(true);
+            return thread;
+        });
+        ScheduledExecutorService executor = liveData;
+        ConcurrentDataTracker.Snapshot[] previous = {dataTracker.snapshot()};
+        executor.scheduleAtFixedRate(() -> {
+            ConcurrentDataTracker.Snapshot now = dataTracker.snapshot();
+            prompt.println(dataTracker.getLiveData(previous[0], now) + "\n", Collections.singletonList("syntax-output"));
+            previous[0] = now;
+            if (!coreThreadsAlive.get() && !imageThreadsAlive.get()) {
+                synchronized (this) {
+                    if (liveData == executor) {
+                        liveData = null;
+                    }
+                }
+                executor.shutdown();
+            }
+        }, 1, 1, TimeUnit.SECONDS);
+    }
+
+    /** waits until the crawl, images included, is done and logged
+     */
+    void awaitFinished() throws InterruptedException {
+        finished.await();
+    }
+
+    ConcurrentDataTracker getDataTracker() { return dataTracker; }
+
     private void printInitMsg() {
         prompt.println("crawler has not been initialized\n", Collections.singletonList("syntax-warning"));
     }
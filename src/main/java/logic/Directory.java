@@ -40,8 +40,9 @@ public class Directory {
         File initFile;
         if ((initFile = IO.readInitFile()) == null || !initFile.canExecute()) { System.err.println("initFile == null"); System.exit(0); }
 
-        return new LinkedHashMap<>(9, 0.75f) {
+        return new LinkedHashMap<>(10, 0.75f) {
             {
+                put("storeDir",  new File(initFile.getAbsolutePath() + "\\" +  "store"));
                 put("nameDir",   new File(initFile.getAbsolutePath() + "\\" +  "domains" + "\\" + name));
                 put("yearDir",   new File(initFile.getAbsolutePath() + "\\" +  "domains" + "\\" + name + "\\" + year));
                 put("monthDir",  new File(initFile.getAbsolutePath() + "\\" +  "domains" + "\\" + name + "\\" + year + "\\" + month));
@@ -78,6 +79,8 @@ public class Directory {
 
     protected String getDirInitDate() { return dirInitDate; }
 
+    protected File getDomainFolder() { return dirLinkedMap.get("nameDir");   }
+
     protected File getHomeFolder()   { return dirLinkedMap.get("dayDir");    }
 
     protected File getHtmlFolder()   { return dirLinkedMap.get("htmlDir");   }
@@ -88,6 +91,8 @@ public class Directory {
 
     protected File getImagesFolder() { return dirLinkedMap.get("imagesDir"); }
 
+    protected File getStoreFolder()  { return dirLinkedMap.get("storeDir");  }
+
     @Override
     public String toString() {
         return String.format("%s%n%s%n%s%n%s%n",
@@ -95,7 +100,7 @@ public class Directory {
     }
 
 
-    private String parseUrl(String rootUrl) throws MalformedURLException {
+    static String parseUrl(String rootUrl) throws MalformedURLException {
         StringBuilder rootName = new StringBuilder();
 
         /* check for Malformed URL */
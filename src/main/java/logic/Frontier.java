@@ -0,0 +1,324 @@
+package logic;
+
+import objects.FingerprintSeenSet;
+import objects.UrlSeenSet;
+
+import java.net.URI;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.Locale;
+import java.util.Map;
+import java.util.PriorityQueue;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Frontier holds the urls waiting to be crawled, shallowest link depth first (breadth first).
+ * It never queues more urls than the crawl still has room for: once the remaining page budget
+ * is covered by queued and in flight urls, new urls are refused (and not marked as seen).
+ * The first MAX_OVERFLOW refused urls are kept aside though, and queued when a failed fetch
+ * releases its reservation, otherwise a crawl whose fetches fail would end short of its budget
+ * for want of the urls it refused.
+ *
+ * The budget is reserved before a fetch starts: a url is only handed out while the fetches in flight
+ * haven't reserved all of what's left, a fetched page commits its reservation, a failed one releases it.
+ * So exactly budget pages are fetched for the crawl, none of them to be thrown away.
+ * Crawl threads report back through done(), which lets the frontier tell when the budget has been
+ * spent, or the site exhausted before that.
+ *
+ * Urls are queued per host, and each host is polite on its own: nothing else is sent to it while its
+ * robots.txt is read with its first url, requests to it are spaced by its crawl-delay (at most MAX_BACKOFF,
+ * a robots.txt can't stall a host for a day), and the number in flight is limited AIMD style, one more after a window of fast
+ * answers, halved on 429 / 503 (honoring Retry-After) or cut on a timeout or latency spike.
+ * Hosts share the crawl's threads, a slow or throttling host no longer holds up the others.
+ */
+class Frontier {
+    private static final int INITIAL_HOST_LIMIT = 2;
+    private static final int MAX_RETRIES = 3;
+    private static final long MIN_BACKOFF = TimeUnit.MILLISECONDS.toNanos(500);
+    private static final long MAX_BACKOFF = TimeUnit.SECONDS.toNanos(60);
+    private static final int MAX_OVERFLOW = 64 * 1024;
+    private static final Comparator<Entry> ORDER =
+            Comparator.comparingInt((Entry e) -> e.depth).thenComparingLong(e -> e.sequence);
+
+    private final Map<String, Host> hosts = new HashMap<>();
+    // refused urls, shallowest first, and the fingerprints of all urls ever kept aside to keep none twice
+    private final PriorityQueue<Entry> overflow = new PriorityQueue<>(ORDER);
+    private UrlSeenSet overflowUrls = new FingerprintSeenSet(1024);
+    private final UrlSeenSet seenUrls;
+    private final Runnable onExhausted;
+    private final int maxHostLimit;
+    private long sequence = 0;
+    private int budget;        // pages not committed yet
+    private int reserved = 0;  // taken urls that haven't committed or failed yet
+    private int queued = 0;
+    private int active = 0;
+    private boolean closed = false;
+
+    Frontier(UrlSeenSet seenUrls, int budget, Runnable onExhausted, int maxHostLimit) {
+        this.seenUrls = seenUrls;
+        this.budget = budget;
+        this.onExhausted = onExhausted;
+        this.maxHostLimit = maxHostLimit;
+    }
+
+    /** queues url unless it has been seen before, the frontier is closed or the budget is already covered
+     */
+    synchronized boolean offer(String url, int depth) {
+        if (closed) {
+            return false;
+        }
+        if (queued + reserved >= budget) {
+            // kept aside in case a reservation is released, see done()
+            if (overflow.size() < MAX_OVERFLOW && !seenUrls.contains(url) && overflowUrls.add(url)) {
+                overflow.add(new Entry(url, depth, sequence++, null, 0));
+            }
+            return false;
+        }
+        if (!seenUrls.add(url)) {
+            return false;
+        }
+
+        queue(url, depth);
+        notifyAll();
+        return true;
+    }
+
+    /** blocks until a url of a host that may be asked now is available and a page of the budget can be reserved
+     * for it, returns null once the frontier is closed, exhausted or the budget spent
+     */
+    synchronized Entry take() throws InterruptedException {
+        while (!closed) {
+            long now = System.nanoTime();
+            Host best = null;
+            long wakeUp = Long.MAX_VALUE;
+
+            for (Host host : reserved < budget ? hosts.values() : Collections.<Host>emptyList()) {
+                if (host.queue.isEmpty() || host.inFlight >= host.limit || host.robotsPending) {
+                    continue;
+                }
+                if (host.nextRequest > now) {
+                    wakeUp = Math.min(wakeUp, host.nextRequest);
+                } else if (best == null || ORDER.compare(host.queue.peek(), best.queue.peek()) < 0) {
+                    best = host;
+                }
+            }
+
+            if (best != null) {
+                best.inFlight++;
+                best.nextRequest = now + best.delay();
+                queued--;
+                active++;
+                reserved++;
+                Entry entry = best.queue.poll();
+                if (!best.robotsRead) {
+                    // the first url reads robots.txt, the host waits for its crawl-delay until then
+                    best.robotsRead = true;
+                    best.robotsPending = true;
+                    entry.readsRobots = true;
+                }
+                return entry;
+            }
+
+            if (exhausted()) {
+                break;
+            }
+
+            if (wakeUp == Long.MAX_VALUE) {
+                wait();
+            } else {
+                TimeUnit.NANOSECONDS.timedWait(this, Math.max(1, wakeUp - now));
+            }
+        }
+        return null;
+    }
+
+    /** true for the first url of a host, its robots.txt is read before it's crawled, see robotsRead
+     */
+    boolean needsRobots(Entry entry) {
+        return entry.readsRobots;
+    }
+
+    /** the robots.txt of the entry's host has been read, or failed to, the host is asked again
+     * crawlDelayMillis after the entry's own request, which goes out now
+     */
+    synchronized void robotsRead(Entry entry, long crawlDelayMillis) {
+        Host host = hosts.get(entry.host);
+        host.crawlDelay = Math.min(MAX_BACKOFF, TimeUnit.MILLISECONDS.toNanos(Math.max(0, crawlDelayMillis)));
+        host.robotsPending = false;
+        host.nextRequest = Math.max(host.nextRequest, System.nanoTime() + host.delay());
+        notifyAll();
+    }
+
+    /** additive increase: one more request in flight once a window of them answered in good time
+     */
+    synchronized void succeeded(Entry entry, long millis) {
+        Host host = hosts.get(entry.host);
+        long latency = TimeUnit.MILLISECONDS.toNanos(millis);
+
+        if (host.samples >= host.limit && latency > 2 * host.averageLatency) {
+            // answers slow down -> the host is busy
+            decrease(host, 3, 4);
+        } else if (++host.successes >= host.limit) {
+            host.successes = 0;
+            host.limit = Math.min(host.limit + 1, maxHostLimit);
+        }
+        host.averageLatency = host.samples++ == 0 ? latency : (4 * host.averageLatency + latency) / 5;
+        // recover from a backoff step by step
+        host.backoff = host.backoff / 2 < MIN_BACKOFF / 4 ? 0 : host.backoff / 2;
+        notifyAll();
+    }
+
+    /** multiplicative decrease on 429 / 503, entry is queued again unless it has been retried enough
+     */
+    synchronized boolean throttled(Entry entry, long retryAfterMillis) {
+        Host host = hosts.get(entry.host);
+        decrease(host, 1, 2);
+        host.backoff = Math.min(MAX_BACKOFF, Math.max(MIN_BACKOFF, 2 * host.backoff));
+        host.nextRequest = Math.max(host.nextRequest,
+                System.nanoTime() + Math.max(host.backoff, TimeUnit.MILLISECONDS.toNanos(retryAfterMillis)));
+
+        if (closed || entry.retries >= MAX_RETRIES) {
+            return false;
+        }
+        host.queue.add(new Entry(entry.url, entry.depth, entry.sequence, entry.host, entry.retries + 1));
+        queued++;
+        notifyAll();
+        return true;
+    }
+
+    /** a timeout counts as a sign of an overloaded host
+     */
+    synchronized void timedOut(Entry entry) {
+        decrease(hosts.get(entry.host), 1, 2);
+    }
+
+    /** the page of a taken url has been fetched and is being written, it counts against the budget
+     */
+    synchronized void commit(Entry entry) {
+        if (!entry.committed) {
+            entry.committed = true;
+            reserved--;
+            budget--;
+        }
+    }
+
+    /** called once the links of a taken url have been offered, releases its reservation unless it committed,
+     * refused urls take up the room that frees
+     */
+    synchronized void done(Entry entry) {
+        hosts.get(entry.host).inFlight--;
+        active--;
+        if (!entry.committed) {
+            reserved--;
+            while (!closed && queued + reserved < budget && !overflow.isEmpty()) {
+                Entry refused = overflow.poll();
+                if (seenUrls.add(refused.url)) {
+                    queue(refused.url, refused.depth);
+                }
+            }
+        }
+        notifyAll();
+        exhausted();
+    }
+
+    synchronized void close() {
+        closed = true;
+        for (Host host : hosts.values()) {
+            host.queue.clear();
+        }
+        overflow.clear();
+        overflowUrls = new FingerprintSeenSet(0);
+        queued = 0;
+        notifyAll();
+    }
+
+    synchronized int size() {
+        return queued;
+    }
+
+    /** urls taken and not done yet
+     */
+    synchronized int inFlight() {
+        return active;
+    }
+
+    /** closes the frontier once nothing is in flight and the budget is spent or nothing is queued,
+     * nobody is left to find new urls then
+     */
+    private boolean exhausted() {
+        if (closed || active > 0 || (queued > 0 && budget > 0)) {
+            return false;
+        }
+        closed = true;
+        notifyAll();
+        onExhausted.run();
+        return true;
+    }
+
+    private void queue(String url, int depth) {
+        Host host = hosts.computeIfAbsent(hostOf(url), name -> new Host(name, Math.min(INITIAL_HOST_LIMIT, maxHostLimit)));
+        host.queue.add(new Entry(url, depth, sequence++, host.name, 0));
+        queued++;
+    }
+
+    private static void decrease(Host host, int numerator, int denominator) {
+        host.limit = Math.max(1, host.limit * numerator / denominator);
+        host.successes = 0;
+    }
+
+    private static String hostOf(String url) {
+        try {
+            String host = URI.create(url).getHost();
+            return host != null ? host.toLowerCase(Locale.ROOT) : "";
+        } catch (IllegalArgumentException ex) {
+            return "";
+        }
+    }
+
+    static class Entry {
+        final String url;
+        final int depth;
+        private final long sequence;
+        private final String host;
+        private final int retries;
+        private boolean committed = false;
+        private boolean readsRobots = false;
+
+        private Entry(String url, int depth, long sequence, String host, int retries) {
+            this.url = url;
+            this.depth = depth;
+            this.sequence = sequence;
+            this.host = host;
+            this.retries = retries;
+        }
+    }
+
+    /**
+     * Host is the queue and the politeness state of one host
+     */
+    private static class Host {
+        private final String name;
+        private final PriorityQueue<Entry> queue = new PriorityQueue<>(ORDER);
+        private int limit;
+        private int inFlight = 0;
+        private int successes = 0;
+        private long samples = 0;
+        private long averageLatency = 0;
+        private long crawlDelay = 0;
+        private long backoff = 0;
+        private long nextRequest = 0;
+        private boolean robotsRead = false;
+        private boolean robotsPending = false;
+
+        private Host(String name, int limit) {
+            this.name = name;
+            this.limit = limit;
+        }
+
+        /** nanos between two requests */
+        private long delay() {
+            return Math.max(crawlDelay, backoff);
+        }
+    }
+}
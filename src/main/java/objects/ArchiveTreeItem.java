@@ -0,0 +1,162 @@
+package objects;
+
+import io.ArchiveCatalog;
+import javafx.application.Platform;
+import javafx.scene.control.CheckBoxTreeItem;
+import javafx.scene.control.TreeItem;
+import org.jetbrains.annotations.NotNull;
+import utils.FontUtils;
+
+import java.io.File;
+import java.io.IOException;
+import java.time.Month;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+/**
+ * ArchiveTreeItem is a folder of the archive tree: the root, a domain, a year, a month or a day (the leaves).
+ * Children are listed when the item is first expanded, on a background thread, so building the tree
+ * takes the same time however big the archive is. A CheckBoxTreeItem so that it serves both the
+ * archive's TreeView, where it shows as a plain item, and the advanced search's CheckTreeView.
+ */
+public class ArchiveTreeItem extends CheckBoxTreeItem<String> {
+    private static final int ROOT = 0, DOMAIN = 1, YEAR = 2, MONTH = 3, DAY = 4;
+    private static final ExecutorService loader = Executors.newSingleThreadExecutor(r -> {
+        Thread thread = new Thread(r, "archive-tree-loader");
+        thread.setDaemon(true);
+        return thread;
+    });
+
+    private final File folder;
+    private final int level;
+    private CompletableFuture<Void> loading = null;
+
+    private ArchiveTreeItem(File folder, int level, String value) {
+        super(value);
+        this.folder = folder;
+        this.level = level;
+
+        setGraphic(level == ROOT ? FontUtils.createRootView() : level == DAY ? FontUtils.createLeafView() : FontUtils.createBranchView());
+        expandedProperty().addListener((observable, oldValue, newValue) -> {
+            if (newValue) {
+                load();
+            }
+        });
+    }
+
+    /** the root of the tree over a 'domains' folder
+     */
+    public static ArchiveTreeItem root(@NotNull File domainsFolder) {
+        return new ArchiveTreeItem(domainsFolder, ROOT, domainsFolder.getName().toUpperCase());
+    }
+
+    @Override
+    public boolean isLeaf() {
+        return level == DAY;
+    }
+
+    /** lists the children, once, completes after they've been added on the FX thread
+     */
+    public synchronized CompletableFuture<Void> load() {
+        if (loading == null) {
+            loading = CompletableFuture.supplyAsync(() -> sorted(list(folder)), loader)
+                    .thenCompose(names -> {
+                        CompletableFuture<Void> added = new CompletableFuture<>();
+                        Platform.runLater(() -> {
+                            List<ArchiveTreeItem> children = new ArrayList<>(names.size());
+                            for (String name : names) {
+                                children.add(child(name));
+                            }
+                            getChildren().setAll(children);
+                            added.complete(null);
+                        });
+                        return added;
+                    });
+        }
+        return loading;
+    }
+
+    /** the days under this item, listing what hasn't been listed yet, never call it on the FX thread
+     */
+    public List<ArchiveTreeItem> leaves() {
+        if (isLeaf()) {
+            return Collections.singletonList(this);
+        }
+        load().join();
+
+        List<ArchiveTreeItem> leaves = new ArrayList<>();
+        for (TreeItem<String> child : new ArrayList<>(getChildren())) {
+            leaves.addAll(((ArchiveTreeItem) child).leaves());
+        }
+        return leaves;
+    }
+
+    /** adds a new crawl's path, e.g. domain, year, month, day, to the items already listed,
+     * items not listed yet find it in the catalog once they are, call it on the FX thread
+     */
+    public void add(@NotNull String... path) {
+        if (path.length == 0 || isLeaf() || loading == null || !loading.isDone()) {
+            return;
+        }
+
+        ArchiveTreeItem child = null;
+        for (TreeItem<String> item : getChildren()) {
+            if (item.getValue().equals(path[0])) {
+                child = (ArchiveTreeItem) item;
+            }
+        }
+        if (child == null) {
+            List<String> names = new ArrayList<>();
+            for (TreeItem<String> item : getChildren()) {
+                names.add(item.getValue());
+            }
+            names.add(path[0]);
+            getChildren().add(sorted(names).indexOf(path[0]), child = child(path[0]));
+        }
+
+        String[] rest = new String[path.length - 1];
+        System.arraycopy(path, 1, rest, 0, rest.length);
+        child.add(rest);
+    }
+
+    private static List<String> list(File folder) {
+        try {
+            return ArchiveCatalog.open().list(folder);
+        } catch (IOException ex) {
+            ex.printStackTrace();
+            return Collections.emptyList();
+        }
+    }
+
+    private ArchiveTreeItem child(String name) {
+        ArchiveTreeItem child = new ArchiveTreeItem(new File(folder, name), level + 1, name);
+        // a checked folder checks what's listed under it later
+        child.setSelected(isSelected());
+        return child;
+    }
+
+    private List<String> sorted(List<String> names) {
+        List<String> sorted = new ArrayList<>(names);
+        switch (level) {
+            case ROOT:
+                sorted.sort(Comparator.naturalOrder());
+                break;
+            case DOMAIN:
+                sorted.sort(Comparator.comparingInt(Integer::parseInt));
+                break;
+            case YEAR:
+                sorted.sort(Comparator.comparingInt(o -> Month.valueOf(o).getValue()));
+                break;
+            case MONTH:
+                sorted.sort(Comparator.comparingInt(o -> Integer.parseInt(o.split("(ST|ND|RD|TH)", 2)[0])));
+                break;
+            default:
+        }
+        return sorted;
+    }
+}
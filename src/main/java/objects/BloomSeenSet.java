@@ -0,0 +1,78 @@
+package objects;
+
+import utils.CrawlUtils;
+
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * BloomSeenSet is a lock free bloom filter over url fingerprints. Its size is fixed up front
+ * from the expected number of urls and the accepted false positive rate, a false positive
+ * means a url that was never crawled is reported as seen and skipped.
+ * Past the expected number of urls the false positive rate climbs.
+ */
+public class BloomSeenSet implements UrlSeenSet {
+    private final AtomicLongArray bits;
+    private final long bitCount;
+    private final int hashCount;
+    private final AtomicInteger size = new AtomicInteger(0);
+
+    public BloomSeenSet(int expectedUrls, double falsePositiveRate) {
+        int n = Math.max(expectedUrls, 1);
+        long m = (long) Math.ceil(-n * Math.log(falsePositiveRate) / (Math.log(2) * Math.log(2)));
+        int words = (int) Math.min((m + 63) / 64, Integer.MAX_VALUE - 8);
+
+        bits = new AtomicLongArray(Math.max(words, 1));
+        bitCount = bits.length() * 64L;
+        hashCount = Math.max(1, (int) Math.round((double) bitCount / n * Math.log(2)));
+    }
+
+    @Override
+    public boolean add(String url) {
+        long fingerprint = CrawlUtils.fingerprint(url);
+        boolean added = false;
+
+        for (int i = 0; i < hashCount; i++) {
+            long bit = bitOf(fingerprint, i);
+            int word = (int) (bit >>> 6);
+            long mask = 1L << bit;
+            long current;
+            while (((current = bits.get(word)) & mask) == 0) {
+                if (bits.compareAndSet(word, current, current | mask)) {
+                    added = true;
+                    break;
+                }
+            }
+        }
+
+        if (added) {
+            size.incrementAndGet();
+        }
+        return added;
+    }
+
+    @Override
+    public boolean contains(String url) {
+        long fingerprint = CrawlUtils.fingerprint(url);
+        for (int i = 0; i < hashCount; i++) {
+            long bit = bitOf(fingerprint, i);
+            if ((bits.get((int) (bit >>> 6)) & (1L << bit)) == 0) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /** number of urls added, urls lost to false positives are not counted
+     */
+    @Override
+    public int size() {
+        return size.get();
+    }
+
+    /** double hashing, the i:th bit is fingerprint + i * (upper half of fingerprint)
+     */
+    private long bitOf(long fingerprint, int i) {
+        return Math.floorMod(fingerprint + i * ((fingerprint >>> 32) | 1), bitCount);
+    }
+}
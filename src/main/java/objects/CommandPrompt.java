@@ -16,7 +16,7 @@ import static org.fxmisc.wellbehaved.event.EventPattern.*;
 import static utils.GUIUtils.runSafe;
 
 
-public class CommandPrompt extends BorderPane {
+public class CommandPrompt extends BorderPane implements PromptOutput {
     private final StyleClassedTextArea area = new StyleClassedTextArea();
 
     private final List<String> history = new ArrayList<>();
@@ -108,6 +108,7 @@ public class CommandPrompt extends BorderPane {
         this.onMessageReceivedHandler = onMessageReceivedHandler;
     }
 
+    @Override
     public void println(String text, List<String> style) {
         runSafe(() -> {
             area.deleteText(area.getCurrentParagraph(), 0, area.getCurrentParagraph(), area.getParagraphLength(area.getCurrentParagraph()));
@@ -117,6 +118,7 @@ public class CommandPrompt extends BorderPane {
         });
     }
 
+    @Override
     public void println(String text, List<String> style, int from, int to, List<String> styleFromTo) {
         runSafe(() -> {
             int paragraph = area.getCurrentParagraph();
@@ -128,6 +130,7 @@ public class CommandPrompt extends BorderPane {
         });
     }
 
+    @Override
     public void println(String text, List<String> defaultStyle,
                         int a, int b, List<String> styleA,
                         int c, int d, List<String> styleB) {
@@ -142,6 +145,7 @@ public class CommandPrompt extends BorderPane {
         });
     }
 
+    @Override
     public void lineSeparator() {
         runSafe(() -> area.appendText(System.lineSeparator()));
     }
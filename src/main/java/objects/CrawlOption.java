@@ -0,0 +1,48 @@
+package objects;
+
+import java.util.EnumSet;
+import java.util.Locale;
+
+/**
+ * CrawlOption is an optional crawl mode, set from the command line with --with option[,option...]
+ */
+public enum CrawlOption {
+    /** remembers seen urls in a bloom filter instead of a fingerprint table,
+     * a fixed and even smaller footprint at the cost of skipping a few urls as false positives
+     */
+    BLOOM,
+    /** stores images exactly as downloaded, streamed to disk and checked by their magic bytes only,
+     * instead of decoding and re-encoding them with ImageIO
+     */
+    RAW_IMAGES,
+    /** stores a page that changed since the last crawl as a line delta against its previous snapshot
+     */
+    DELTA,
+    /** appends pages to a single gzipped WARC segment per crawl instead of writing a file per page
+     */
+    WARC,
+    /** runs every fetch on a virtual thread of its own, the thread count becomes the number of fetches
+     * in flight, up to thousands, needs a runtime with virtual threads (else platform threads are used)
+     */
+    VIRTUAL,
+    /** fetches with one shared asynchronous HTTP/2 client, connections reused per host, instead of a
+     * connection per request, and parses on a pool sized to the cpus, the thread count becomes
+     * the number of fetches in flight
+     */
+    ASYNC;
+
+    public static EnumSet<CrawlOption> parse(String options) throws IllegalArgumentException {
+        EnumSet<CrawlOption> set = EnumSet.noneOf(CrawlOption.class);
+        for (String option : options.split(",")) {
+            if (option.isBlank()) {
+                continue;
+            }
+            try {
+                set.add(valueOf(option.trim().toUpperCase(Locale.ROOT).replace('-', '_')));
+            } catch (IllegalArgumentException ex) {
+                throw new IllegalArgumentException("unknown crawl option '" + option.trim() + "'");
+            }
+        }
+        return set;
+    }
+}
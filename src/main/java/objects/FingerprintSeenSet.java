@@ -0,0 +1,101 @@
+package objects;
+
+import utils.CrawlUtils;
+
+/**
+ * FingerprintSeenSet stores 64 bit url fingerprints in primitive open addressing tables
+ * (8 bytes per url plus free slots) instead of the url Strings themselves.
+ * The tables are split into stripes, each with its own lock, to keep Crawl threads from
+ * contending on a single monitor. Two different urls are mistaken for one another with a
+ * probability of about n^2 / 2^65, i.e. never in practice.
+ */
+public class FingerprintSeenSet implements UrlSeenSet {
+    private static final int STRIPES = 16;
+    private static final float LOAD_FACTOR = 0.6f;
+
+    private final Stripe[] stripes = new Stripe[STRIPES];
+
+    public FingerprintSeenSet(int expectedUrls) {
+        int perStripe = (int) Math.ceil(Math.max(expectedUrls, STRIPES) / (float) STRIPES / LOAD_FACTOR);
+        for (int i = 0; i < STRIPES; i++) {
+            stripes[i] = new Stripe(Integer.highestOneBit(perStripe - 1) << 1);
+        }
+    }
+
+    @Override
+    public boolean add(String url) {
+        long fingerprint = CrawlUtils.fingerprint(url);
+        return stripeOf(fingerprint).add(fingerprint);
+    }
+
+    @Override
+    public boolean contains(String url) {
+        long fingerprint = CrawlUtils.fingerprint(url);
+        return stripeOf(fingerprint).contains(fingerprint);
+    }
+
+    @Override
+    public int size() {
+        int size = 0;
+        for (Stripe stripe : stripes) {
+            size += stripe.size();
+        }
+        return size;
+    }
+
+    private Stripe stripeOf(long fingerprint) {
+        // the top bits pick the stripe, the low bits the slot within it
+        return stripes[(int) (fingerprint >>> 60) & (STRIPES - 1)];
+    }
+
+    private static class Stripe {
+        private long[] table; // 0 marks a free slot, fingerprints are never 0
+        private int size = 0;
+
+        private Stripe(int capacity) {
+            table = new long[capacity];
+        }
+
+        private synchronized boolean add(long fingerprint) {
+            int slot = slotOf(table, fingerprint);
+            if (table[slot] == fingerprint) {
+                return false;
+            }
+
+            table[slot] = fingerprint;
+            if (++size > table.length * LOAD_FACTOR) {
+                grow();
+            }
+            return true;
+        }
+
+        private synchronized boolean contains(long fingerprint) {
+            return table[slotOf(table, fingerprint)] == fingerprint;
+        }
+
+        private synchronized int size() {
+            return size;
+        }
+
+        private void grow() {
+            long[] grown = new long[table.length * 2];
+            for (long fingerprint : table) {
+                if (fingerprint != 0) {
+                    grown[slotOf(grown, fingerprint)] = fingerprint;
+                }
+            }
+            table = grown;
+        }
+
+        /** linear probing, returns the slot holding fingerprint or the free slot it belongs in
+         */
+        private static int slotOf(long[] table, long fingerprint) {
+            int mask = table.length - 1;
+            int slot = (int) fingerprint & mask;
+            while (table[slot] != 0 && table[slot] != fingerprint) {
+                slot = (slot + 1) & mask;
+            }
+            return slot;
+        }
+    }
+}
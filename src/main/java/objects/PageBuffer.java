@@ -0,0 +1,160 @@
+package objects;
+
+import org.jetbrains.annotations.NotNull;
+import utils.CrawlUtils;
+
+import java.nio.ByteBuffer;
+import java.nio.CharBuffer;
+import java.nio.charset.CharsetEncoder;
+import java.nio.charset.CodingErrorAction;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+
+/**
+ * PageBuffer is the html of a page as it's rewritten: appended chars go straight to UTF-8 bytes,
+ * hashed with SHA-256 on the way, so a page is held once and never copied into a String to be stored.
+ * A buffer is reused from page to page, see reset(), and grows to fit the largest page it has held.
+ */
+public class PageBuffer implements Appendable {
+    private static final int CHUNK = 8 * 1024;
+
+    private final CharsetEncoder encoder = StandardCharsets.UTF_8.newEncoder()
+            .onMalformedInput(CodingErrorAction.REPLACE)
+            .onUnmappableCharacter(CodingErrorAction.REPLACE);
+    private final CharBuffer pending = CharBuffer.allocate(CHUNK);
+    private final MessageDigest digest;
+    private ByteBuffer bytes;
+    private String hash = null;
+
+    public PageBuffer(int capacity) {
+        bytes = ByteBuffer.allocate(Math.max(CHUNK, capacity));
+        try {
+            digest = MessageDigest.getInstance("SHA-256");
+        } catch (NoSuchAlgorithmException ex) {
+            throw new IllegalStateException(ex); // every java platform has SHA-256
+        }
+    }
+
+    @Override
+    public PageBuffer append(CharSequence csq) {
+        return append(csq, 0, csq.length());
+    }
+
+    @Override
+    public PageBuffer append(CharSequence csq, int start, int end) {
+        checkOpen();
+        while (start < end) {
+            int n = Math.min(end - start, pending.remaining());
+            if (csq instanceof String) {
+                pending.put((String) csq, start, start + n);
+            } else {
+                for (int i = start; i < start + n; i++) {
+                    pending.put(csq.charAt(i));
+                }
+            }
+            start += n;
+            if (!pending.hasRemaining()) {
+                encode(false);
+            }
+        }
+        return this;
+    }
+
+    @Override
+    public PageBuffer append(char c) {
+        checkOpen();
+        pending.put(c);
+        if (!pending.hasRemaining()) {
+            encode(false);
+        }
+        return this;
+    }
+
+    /** ends the page, nothing can be appended until the buffer is reset
+     */
+    public void finish() {
+        if (hash == null) {
+            encode(true);
+            hash = CrawlUtils.toHex(digest.digest());
+        }
+    }
+
+    /** lower case hex of the SHA-256 of the bytes, the page has to be finished
+     */
+    @NotNull
+    public String getHash() {
+        checkFinished();
+        return hash;
+    }
+
+    /** a read-only view of the UTF-8 bytes of the finished page
+     */
+    @NotNull
+    public ByteBuffer bytes() {
+        checkFinished();
+        ByteBuffer view = bytes.duplicate();
+        view.flip();
+        return view.asReadOnlyBuffer();
+    }
+
+    public int size() {
+        return bytes.position();
+    }
+
+    public int capacity() {
+        return bytes.capacity();
+    }
+
+    /** empties the buffer for the next page, its capacity is kept
+     */
+    public void reset() {
+        bytes.clear();
+        pending.clear();
+        encoder.reset();
+        digest.reset();
+        hash = null;
+    }
+
+    /** the page decoded, a copy, for what needs it as a String
+     */
+    @Override
+    public String toString() {
+        return new String(bytes.array(), 0, bytes.position(), StandardCharsets.UTF_8);
+    }
+
+    /** encodes the pending chars, a high surrogate at the end of them waits for its low one
+     */
+    private void encode(boolean endOfInput) {
+        int from = bytes.position();
+        pending.flip();
+        while (encoder.encode(pending, bytes, endOfInput).isOverflow()) {
+            grow();
+        }
+        if (endOfInput) {
+            while (encoder.flush(bytes).isOverflow()) {
+                grow();
+            }
+        }
+        pending.compact();
+        digest.update(bytes.array(), from, bytes.position() - from);
+    }
+
+    private void grow() {
+        ByteBuffer grown = ByteBuffer.allocate(bytes.capacity() * 2);
+        bytes.flip();
+        bytes = grown.put(bytes);
+    }
+
+    private void checkOpen() {
+        if (hash != null) {
+            throw new IllegalStateException("page is finished");
+        }
+    }
+
+    private void checkFinished() {
+        if (hash == null) {
+            throw new IllegalStateException("page isn't finished");
+        }
+    }
+}
@@ -0,0 +1,18 @@
+package objects;
+
+import java.util.List;
+
+/**
+ * PromptOutput is where a crawl prints to: the CommandPrompt of the gui, or standard out when crawling headless.
+ * Text is styled with the style classes of the prompt, from/to style a range of the text.
+ */
+public interface PromptOutput {
+
+    void println(String text, List<String> style);
+
+    void println(String text, List<String> style, int from, int to, List<String> styleFromTo);
+
+    void println(String text, List<String> defaultStyle, int a, int b, List<String> styleA, int c, int d, List<String> styleB);
+
+    void lineSeparator();
+}
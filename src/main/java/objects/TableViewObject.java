@@ -3,7 +3,6 @@ package objects;
 import javafx.beans.property.*;
 
 import javafx.scene.control.TreeItem;
-import org.jsoup.nodes.Document;
 
 import java.io.File;
 
@@ -12,16 +11,14 @@ public class TableViewObject {
 
     private static int idCount = 1;
     private final IntegerProperty cellTableCount = new SimpleIntegerProperty(idCount++);
-    private final ObjectProperty<Document> document;
     private final StringProperty title;
     private final StringProperty dir;
     private final IntegerProperty matches;
     private final TreeItem<String> treeItem;
     private final File file;
 
-    public TableViewObject(Document document, String dir, int matches, TreeItem<String> treeItem, File file) {
-        this.document = new SimpleObjectProperty<Document>(document);
-        this.title = new SimpleStringProperty(document.title());
+    public TableViewObject(String title, String dir, int matches, TreeItem<String> treeItem, File file) {
+        this.title = new SimpleStringProperty(title);
         this.matches = new SimpleIntegerProperty(matches);
         this.dir = new SimpleStringProperty(dir);
         this.treeItem = treeItem;
@@ -29,14 +26,6 @@ public class TableViewObject {
     }
 
 
-    public Document getDocument() {
-        return document.get();
-    }
-
-    public ObjectProperty<Document> documentProperty() {
-        return document;
-    }
-
     public String getTitle() {
         return title.get();
     }
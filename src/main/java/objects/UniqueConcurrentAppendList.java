@@ -0,0 +1,97 @@
+package objects;
+
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+/**
+ * UniqueConcurrentAppendList is a lock free, append only collection without duplicates.
+ * A concurrent set decides uniqueness, the winner of an element then appends it to a log of
+ * chunks that double in size, so elements are never copied and the log never needs a lock.
+ * Iterating is safe while other threads add and sees every element added before the iterator
+ * was created, in insertion order.
+ */
+public class UniqueConcurrentAppendList<E> implements Iterable<E> {
+    private static final int FIRST_CHUNK_BITS = 4;
+    private static final int FIRST_CHUNK_SIZE = 1 << FIRST_CHUNK_BITS;
+    private static final int MAX_CHUNKS = 32 - FIRST_CHUNK_BITS;
+
+    private final Set<E> set = ConcurrentHashMap.newKeySet();
+    private final AtomicReferenceArray<AtomicReferenceArray<E>> chunks = new AtomicReferenceArray<>(MAX_CHUNKS);
+    private final AtomicInteger reserved = new AtomicInteger(0);
+
+    /** adds e unless already present, returns false if it was
+     */
+    public boolean add(E e) {
+        // most adds are duplicates, contains is a plain read while add locks the key's bin
+        if (set.contains(e) || !set.add(e)) {
+            return false;
+        }
+
+        int index = reserved.getAndIncrement();
+        chunk(chunkOf(index)).set(offsetOf(index), e);
+        return true;
+    }
+
+    public boolean contains(Object o) {
+        return set.contains(o);
+    }
+
+    public int size() {
+        return reserved.get();
+    }
+
+    @Override
+    public Iterator<E> iterator() {
+        int end = reserved.get();
+
+        return new Iterator<>() {
+            private int index = 0;
+
+            @Override
+            public boolean hasNext() {
+                return index < end;
+            }
+
+            @Override
+            public E next() {
+                if (index >= end) {
+                    throw new NoSuchElementException();
+                }
+                AtomicReferenceArray<E> chunk;
+                while ((chunk = chunks.get(chunkOf(index))) == null) {
+                    Thread.onSpinWait();
+                }
+                // the slot has been reserved, its writer is at most a few instructions away
+                E e;
+                while ((e = chunk.get(offsetOf(index))) == null) {
+                    Thread.onSpinWait();
+                }
+                index++;
+                return e;
+            }
+        };
+    }
+
+    private AtomicReferenceArray<E> chunk(int chunkIndex) {
+        AtomicReferenceArray<E> chunk = chunks.get(chunkIndex);
+        if (chunk == null) {
+            chunks.compareAndSet(chunkIndex, null, new AtomicReferenceArray<>(FIRST_CHUNK_SIZE << chunkIndex));
+            chunk = chunks.get(chunkIndex);
+        }
+        return chunk;
+    }
+
+    /** chunk k holds FIRST_CHUNK_SIZE << k elements, starting at index FIRST_CHUNK_SIZE * (2^k - 1)
+     */
+    private static int chunkOf(int index) {
+        return 31 - Integer.numberOfLeadingZeros(index + FIRST_CHUNK_SIZE) - FIRST_CHUNK_BITS;
+    }
+
+    private static int offsetOf(int index) {
+        return index + FIRST_CHUNK_SIZE - (FIRST_CHUNK_SIZE << chunkOf(index));
+    }
+}
@@ -0,0 +1,16 @@
+package objects;
+
+/**
+ * UrlSeenSet remembers which urls a crawl has already queued.
+ * Implementations are thread safe.
+ */
+public interface UrlSeenSet {
+
+    /** adds url, returns false if it (probably) has been added before
+     */
+    boolean add(String url);
+
+    boolean contains(String url);
+
+    int size();
+}
@@ -0,0 +1,136 @@
+package utils;
+
+import org.jetbrains.annotations.NotNull;
+
+import java.util.*;
+
+/**
+ * AhoCorasick is a precompiled, case insensitive multi pattern matcher.
+ * All patterns are counted in a single left to right pass over the text, whatever their number.
+ * An automaton is immutable and can be shared between threads.
+ */
+public class AhoCorasick {
+    private final int[] lengths;
+    private final char[][] keys;   // per node, sorted transition chars
+    private final int[][] next;    // per node, target of keys[node][i]
+    private final int[] fail;
+    private final int[] outputLink; // nearest node on the fail chain that ends a pattern, -1 if none
+    private final int[][] outputs;  // per node, the patterns ending exactly here
+
+    private AhoCorasick(int[] lengths, char[][] keys, int[][] next, int[] fail, int[] outputLink, int[][] outputs) {
+        this.lengths = lengths;
+        this.keys = keys;
+        this.next = next;
+        this.fail = fail;
+        this.outputLink = outputLink;
+        this.outputs = outputs;
+    }
+
+    public static AhoCorasick compile(@NotNull List<String> patterns) {
+        List<TreeMap<Character, Integer>> children = new ArrayList<>();
+        List<List<Integer>> ends = new ArrayList<>();
+        children.add(new TreeMap<>());
+        ends.add(new ArrayList<>());
+        int[] lengths = new int[patterns.size()];
+
+        // trie
+        for (int p = 0; p < patterns.size(); p++) {
+            String pattern = patterns.get(p);
+            lengths[p] = pattern.length();
+            if (pattern.isEmpty()) {
+                continue;
+            }
+
+            int node = 0;
+            for (int i = 0; i < pattern.length(); i++) {
+                char c = TextMatcher.fold(pattern.charAt(i));
+                Integer child = children.get(node).get(c);
+                if (child == null) {
+                    child = children.size();
+                    children.add(new TreeMap<>());
+                    ends.add(new ArrayList<>());
+                    children.get(node).put(c, child);
+                }
+                node = child;
+            }
+            ends.get(node).add(p);
+        }
+
+        int size = children.size();
+        char[][] keys = new char[size][];
+        int[][] next = new int[size][];
+        int[][] outputs = new int[size][];
+        for (int node = 0; node < size; node++) {
+            keys[node] = new char[children.get(node).size()];
+            next[node] = new int[children.get(node).size()];
+            int i = 0;
+            for (Map.Entry<Character, Integer> entry : children.get(node).entrySet()) {
+                keys[node][i] = entry.getKey();
+                next[node][i++] = entry.getValue();
+            }
+            outputs[node] = ends.get(node).stream().mapToInt(Integer::intValue).toArray();
+        }
+
+        // failure and output links, breadth first
+        int[] fail = new int[size];
+        int[] outputLink = new int[size];
+        Arrays.fill(outputLink, -1);
+        Deque<Integer> queue = new ArrayDeque<>();
+        for (int child : next[0]) {
+            queue.add(child);
+        }
+
+        while (!queue.isEmpty()) {
+            int node = queue.poll();
+            outputLink[node] = outputs[fail[node]].length != 0 ? fail[node] : outputLink[fail[node]];
+
+            for (int i = 0; i < keys[node].length; i++) {
+                int child = next[node][i];
+                int state = fail[node];
+                int target;
+                while ((target = step(keys, next, state, keys[node][i])) == -1 && state != 0) {
+                    state = fail[state];
+                }
+                fail[child] = target == -1 ? 0 : target;
+                queue.add(child);
+            }
+        }
+
+        return new AhoCorasick(lengths, keys, next, fail, outputLink, outputs);
+    }
+
+    public int getPatternCount() { return lengths.length; }
+
+    /** counts the occurrences of every pattern in text, occurrences of the same pattern never overlap
+     */
+    public int[] count(@NotNull CharSequence text) {
+        int[] counts = new int[lengths.length];
+        int[] lastEnd = new int[lengths.length];
+        int state = 0;
+
+        for (int i = 0; i < text.length(); i++) {
+            char c = TextMatcher.fold(text.charAt(i));
+            int target;
+            while ((target = step(keys, next, state, c)) == -1 && state != 0) {
+                state = fail[state];
+            }
+            state = target == -1 ? 0 : target;
+
+            for (int node = state; node != -1; node = outputLink[node]) {
+                for (int p : outputs[node]) {
+                    if (i + 1 - lengths[p] >= lastEnd[p]) {
+                        counts[p]++;
+                        lastEnd[p] = i + 1;
+                    }
+                }
+            }
+        }
+
+        return counts;
+    }
+
+    private static int step(char[][] keys, int[][] next, int state, char c) {
+        int index = Arrays.binarySearch(keys[state], c);
+        return index < 0 ? -1 : next[state][index];
+    }
+}
@@ -1,5 +1,10 @@
 package utils;
 
+import java.nio.ByteBuffer;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Locale;
+
 public class CrawlUtils {
 
     public static String convertSrcSetToUrl(String srcSet){
@@ -41,4 +46,133 @@ public class CrawlUtils {
 
         return new String(fileExtension);
     }
+
+    /** 64 bit fingerprint of a url (FNV-1a, finished with a murmur3 mix), never 0
+     */
+    public static long fingerprint(CharSequence url) {
+        long hash = 0xcbf29ce484222325L;
+        for (int i = 0; i < url.length(); i++) {
+            hash ^= url.charAt(i);
+            hash *= 0x100000001b3L;
+        }
+
+        hash ^= hash >>> 33;
+        hash *= 0xff51afd7ed558ccdL;
+        hash ^= hash >>> 33;
+        hash *= 0xc4ceb9fe1a85ec53L;
+        hash ^= hash >>> 33;
+
+        return hash == 0 ? 1 : hash;
+    }
+
+    /** image type from the first bytes of a file (at least 12 are needed to tell them all apart),
+     * null if they match no format an archived page can display
+     */
+    public static String sniffImageType(ByteBuffer head) {
+        int n = head.remaining();
+        int p = head.position();
+
+        if (n >= 3 && (head.get(p) & 0xff) == 0xff && (head.get(p + 1) & 0xff) == 0xd8 && (head.get(p + 2) & 0xff) == 0xff) {
+            return "jpg";
+        }
+        if (n >= 8 && head.getLong(p) == 0x89504e470d0a1a0aL) {
+            return "png";
+        }
+        if (startsWith(head, "GIF87a") || startsWith(head, "GIF89a")) {
+            return "gif";
+        }
+        if (n >= 12 && startsWith(head, "RIFF") && head.getInt(p + 8) == 0x57454250) { // "WEBP"
+            return "webp";
+        }
+        if (startsWith(head, "BM")) {
+            return "bmp";
+        }
+        if (n >= 4 && (head.getInt(p) == 0x49492a00 || head.getInt(p) == 0x4d4d002a)) {
+            return "tiff";
+        }
+        if (n >= 4 && head.getInt(p) == 0x00000100) {
+            return "ico";
+        }
+        return null;
+    }
+
+    private static boolean startsWith(ByteBuffer head, String magic) {
+        if (head.remaining() < magic.length()) {
+            return false;
+        }
+        for (int i = 0; i < magic.length(); i++) {
+            if (head.get(head.position() + i) != magic.charAt(i)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /** Crawl-delay in ms of the "User-agent: *" group of a robots.txt, 0 if it sets none
+     */
+    public static long parseCrawlDelay(String robots) {
+        boolean anyAgent = false;
+        boolean groupStarted = false;
+
+        for (String line : robots.split("\r?\n|\r")) {
+            int comment = line.indexOf('#');
+            String[] field = (comment >= 0 ? line.substring(0, comment) : line).split(":", 2);
+            if (field.length != 2) {
+                continue;
+            }
+            String key = field[0].trim().toLowerCase(Locale.ROOT);
+            String value = field[1].trim();
+
+            if (key.equals("user-agent")) {
+                // consecutive user-agent lines share one group
+                if (groupStarted) {
+                    anyAgent = false;
+                    groupStarted = false;
+                }
+                anyAgent |= value.equals("*");
+            } else {
+                groupStarted = true;
+                if (anyAgent && key.equals("crawl-delay")) {
+                    try {
+                        // NaN -> 0, Infinity -> Long.MAX_VALUE, callers cap it
+                        return Math.max(0, (long) (Double.parseDouble(value) * 1000));
+                    } catch (NumberFormatException ex) {
+                        return 0;
+                    }
+                }
+            }
+        }
+        return 0;
+    }
+
+    /** Retry-After header in ms, only the delta-seconds form, 0 if absent or a date
+     */
+    public static long parseRetryAfter(String retryAfter) {
+        if (retryAfter == null) {
+            return 0;
+        }
+        try {
+            return Math.max(0, Long.parseLong(retryAfter.trim())) * 1000;
+        } catch (NumberFormatException ex) {
+            return 0;
+        }
+    }
+
+    /** lower case hex of SHA-256(bytes)
+     */
+    public static String sha256(byte[] bytes) {
+        try {
+            return toHex(MessageDigest.getInstance("SHA-256").digest(bytes));
+        } catch (NoSuchAlgorithmException ex) {
+            throw new IllegalStateException(ex); // every java platform has SHA-256
+        }
+    }
+
+    public static String toHex(byte[] bytes) {
+        StringBuilder hex = new StringBuilder(bytes.length * 2);
+        for (byte b : bytes) {
+            hex.append(Character.forDigit((b >> 4) & 0xf, 16)).append(Character.forDigit(b & 0xf, 16));
+        }
+        return hex.toString();
+    }
 }
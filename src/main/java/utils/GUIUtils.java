@@ -1,7 +1,14 @@
 package utils;
 
+import io.PageStore;
 import javafx.application.Platform;
+import javafx.scene.web.WebEngine;
+import org.jetbrains.annotations.NotNull;
+import org.jsoup.nodes.Document;
 
+import java.io.File;
+import java.io.IOException;
+import java.net.URI;
 import java.util.Objects;
 
 public class GUIUtils {
@@ -20,4 +27,35 @@ public class GUIUtils {
         }
     }
 
+    /** loads an archived page into engine, pages not stored as a file of their own (deltas, segment records)
+     * are read through PageStore and loaded as content, as are such pages their links lead to
+     */
+    public static void loadPage(@NotNull WebEngine engine, @NotNull File htmlFile) {
+        engine.locationProperty().addListener((observable, oldLocation, newLocation) -> {
+            if (newLocation != null && newLocation.startsWith("file:") && newLocation.endsWith(".html")) {
+                File file = new File(URI.create(newLocation));
+                if (!file.exists() && PageStore.exists(file)) {
+                    Platform.runLater(() -> loadStored(engine, file));
+                }
+            }
+        });
+
+        if (htmlFile.exists()) {
+            engine.load(htmlFile.toURI().toString());
+        } else {
+            loadStored(engine, htmlFile);
+        }
+    }
+
+    private static void loadStored(WebEngine engine, File htmlFile) {
+        try {
+            Document document = PageStore.parse(htmlFile);
+            // resolves ../assets and links to other pages as if loaded from file
+            document.head().prependElement("base").attr("href", htmlFile.getParentFile().toURI().toString());
+            engine.loadContent(document.outerHtml());
+        } catch (IOException ex) {
+            ex.printStackTrace();
+        }
+    }
+
 }
@@ -0,0 +1,522 @@
+package utils;
+
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+import org.jsoup.internal.StringUtil;
+import org.jsoup.parser.Parser;
+
+import java.io.BufferedInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.Reader;
+import java.nio.CharBuffer;
+import java.nio.charset.Charset;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Set;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * LinkRewriter rewrites a crawled page for the archive in a single pass over its html, without building a DOM:
+ * anchors are pointed at the local html files, stylesheets at the local css and, when images are downloaded,
+ * images at the local images, a srcset (of an img, or a source in a picture) replaced by a plain img src.
+ * Everything else is copied as it is read, markup untouched.
+ *
+ * The page streams from a Reader to an Appendable, all that's held besides a fixed read buffer is the tag at hand.
+ * The urls found, resolved against the page's location (or its base href), are kept for the crawl.
+ * One instance per page.
+ */
+public class LinkRewriter {
+    private static final int BUFFER_SIZE = 8 * 1024;
+    private static final int SNIFF_SIZE = 5 * 1024;
+    private static final Set<String> RAW_TEXT = new HashSet<>(Arrays.asList(
+            "script", "style", "textarea", "title", "xmp", "iframe", "noembed", "noframes"));
+    private static final Pattern META_CHARSET = Pattern.compile("(?i)<meta\\s[^>]*charset\\s*=\\s*[\"']?\\s*([\\w.:-]+)");
+
+    private final boolean rewriteImages;
+    private final List<String> links = new ArrayList<>();
+    private final List<String> images = new ArrayList<>();
+    private String baseUri;
+    private boolean baseSet = false;
+    private String title = null;
+    private int pictureDepth = 0;
+
+    private Reader in;
+    private Appendable out;
+    private char[] buffer = new char[BUFFER_SIZE];
+    private CharBuffer view = CharBuffer.wrap(buffer);
+    private int pos = 0;
+    private int limit = 0;
+
+    // the tag at hand and its attributes: name start, name end, value start, value end (-1 without value)
+    private final StringBuilder tag = new StringBuilder();
+    private final List<int[]> attributes = new ArrayList<>();
+    private int nameEnd;
+
+    public LinkRewriter(@NotNull String location, boolean rewriteImages) {
+        this.baseUri = location;
+        this.rewriteImages = rewriteImages;
+    }
+
+    /** decodes a page in the charset of its Content-Type, else the one its BOM or a meta tag names, else UTF-8
+     */
+    @NotNull
+    public static Reader reader(@NotNull InputStream stream, @Nullable String charset) throws IOException {
+        BufferedInputStream in = new BufferedInputStream(stream, SNIFF_SIZE);
+        in.mark(SNIFF_SIZE);
+        byte[] head = new byte[SNIFF_SIZE];
+        int length = 0;
+        int read;
+        while (length < head.length && (read = in.read(head, length, head.length - length)) != -1) {
+            length += read;
+        }
+        in.reset();
+
+        Charset detected = StandardCharsets.UTF_8;
+        if (length >= 3 && (head[0] & 0xff) == 0xef && (head[1] & 0xff) == 0xbb && (head[2] & 0xff) == 0xbf) {
+            in.skip(3);
+        } else if (length >= 2 && (head[0] & 0xff) == 0xfe && (head[1] & 0xff) == 0xff) {
+            detected = StandardCharsets.UTF_16BE;
+            in.skip(2);
+        } else if (length >= 2 && (head[0] & 0xff) == 0xff && (head[1] & 0xff) == 0xfe) {
+            detected = StandardCharsets.UTF_16LE;
+            in.skip(2);
+        } else if (charset != null) {
+            detected = Charset.forName(charset);
+        } else {
+            Matcher matcher = META_CHARSET.matcher(new String(head, 0, length, StandardCharsets.ISO_8859_1));
+            try {
+                if (matcher.find() && Charset.isSupported(matcher.group(1))) {
+                    detected = Charset.forName(matcher.group(1));
+                }
+            } catch (IllegalArgumentException ex) {
+                // not a charset name, stay with UTF-8
+            }
+        }
+        return new InputStreamReader(in, detected);
+    }
+
+    /** copies the page from in to out, links rewritten
+     */
+    public void rewrite(@NotNull Reader in, @NotNull Appendable out) throws IOException {
+        this.in = in;
+        this.out = out;
+
+        while (copyText(null)) {
+            int next = peek(1);
+            if (next == '!' && peek(2) == '-' && peek(3) == '-') {
+                copyThrough("-->", 4);
+            } else if (next == '!' || next == '?') {
+                copyThrough(">", 2);
+            } else if (next == '/' && isLetter(peek(2))) {
+                endTag();
+            } else if (isLetter(next)) {
+                startTag();
+            } else {
+                // a '<' in text
+                out.append('<');
+                pos++;
+            }
+        }
+    }
+
+    /** the absolute urls of the anchors, in page order */
+    @NotNull
+    public List<String> getLinks() { return Collections.unmodifiableList(links); }
+
+    /** the absolute urls of the images pointed at the local images, in page order */
+    @NotNull
+    public List<String> getImages() { return Collections.unmodifiableList(images); }
+
+    /** the page title, whitespace normalized, "" if it has none */
+    @NotNull
+    public String getTitle() { return title != null ? title : ""; }
+
+    private void startTag() throws IOException {
+        readTag();
+        parseAttributes();
+        String name = tag.substring(1, nameEnd).toLowerCase(Locale.ROOT);
+
+        switch (name) {
+            case "a":
+                int href = attribute("href");
+                if (href != -1) {
+                    String url = absolute(value(href));
+                    links.add(url);
+                    set(href, "href", url.hashCode() + ".html");
+                }
+                break;
+            case "link":
+                int rel = attribute("rel");
+                if (rel != -1 && value(rel).trim().equalsIgnoreCase("stylesheet")) {
+                    int css = attribute("href");
+                    String url = css != -1 ? absolute(value(css)) : "";
+                    set(css, "href", "../assets/css/" + url.hashCode() + ".css");
+                }
+                break;
+            case "base":
+                int base = attribute("href");
+                if (!baseSet && base != -1) {
+                    // like a browser, only the first base counts
+                    baseSet = true;
+                    String url = absolute(value(base));
+                    if (!url.isEmpty()) {
+                        baseUri = url;
+                    }
+                }
+                break;
+            case "picture":
+                pictureDepth++;
+                break;
+            case "img":
+            case "source":
+                if (rewriteImages) {
+                    image(name);
+                }
+                break;
+            default:
+        }
+
+        out.append(tag);
+        if (RAW_TEXT.contains(name)) {
+            StringBuilder text = name.equals("title") && title == null ? new StringBuilder() : null;
+            copyRawText(name, text);
+            if (text != null) {
+                title = StringUtil.normaliseWhitespace(Parser.unescapeEntities(text.toString(), false)).trim();
+            }
+        }
+    }
+
+    /** a srcset becomes a plain img src, then an img src is pointed at its local image
+     */
+    private void image(String name) {
+        int srcSet = attribute("srcset");
+        if (srcSet != -1 && (name.equals("img") || pictureDepth > 0)) {
+            int src = attribute("src");
+            String srcValue = src != -1 ? value(src) : "";
+            String srcSetValue = value(srcSet);
+            String url = !srcValue.isEmpty() && srcSetValue.isEmpty() ? srcValue : CrawlUtils.convertSrcSetToUrl(srcSetValue);
+
+            tag.setLength(0);
+            tag.append("<img src=\"").append(escape(url)).append("\">");
+            parseAttributes();
+            name = "img";
+        }
+        if (!name.equals("img")) {
+            return;
+        }
+
+        int src = attribute("src");
+        if (src == -1) {
+            return;
+        }
+        String url = absolute(value(src));
+        String extensionType = CrawlUtils.getExtensionType(url);
+        if (!extensionType.equals("noContentType")) {
+            images.add(url);
+            set(src, "src", "../assets/images/" + url.hashCode() + "." + extensionType);
+        } else {
+            set(attribute("alt"), "alt", "noContentType found");
+        }
+    }
+
+    private void endTag() throws IOException {
+        readTag();
+        String name = tag.substring(2, nameEnd).toLowerCase(Locale.ROOT);
+        if (name.equals("picture") && pictureDepth > 0) {
+            pictureDepth--;
+        }
+        out.append(tag);
+    }
+
+    /** reads the tag at pos into tag, up to its '>' outside of quoted attribute values
+     */
+    private void readTag() throws IOException {
+        tag.setLength(0);
+        tag.append((char) peek(0));
+        pos++;
+        if (peek(0) == '/') {
+            tag.append('/');
+            pos++;
+        }
+
+        int c;
+        while ((c = peek(0)) != -1 && !isWhitespace(c) && c != '/' && c != '>') {
+            tag.append((char) c);
+            pos++;
+        }
+        nameEnd = tag.length();
+
+        // where in an attribute the tag is: quotes only quote a value they open
+        char quote = 0;
+        boolean afterEquals = false;
+        boolean unquoted = false;
+        while ((c = peek(0)) != -1) {
+            tag.append((char) c);
+            pos++;
+            if (quote != 0) {
+                if (c == quote) {
+                    quote = 0;
+                }
+            } else if (c == '>') {
+                return;
+            } else if (unquoted) {
+                unquoted = !isWhitespace(c);
+            } else if (afterEquals) {
+                if (c == '"' || c == '\'') {
+                    quote = (char) c;
+                    afterEquals = false;
+                } else if (!isWhitespace(c)) {
+                    unquoted = true;
+                    afterEquals = false;
+                }
+            } else if (c == '=') {
+                afterEquals = true;
+            }
+        }
+    }
+
+    /** finds the attributes of tag, from its name to its end
+     */
+    private void parseAttributes() {
+        attributes.clear();
+        int end = tag.length();
+        int i = tag.charAt(1) == '/' ? 2 : 1;
+        while (i < end && !isWhitespace(tag.charAt(i)) && tag.charAt(i) != '/' && tag.charAt(i) != '>') {
+            i++;
+        }
+        nameEnd = i;
+
+        while (i < end) {
+            char c = tag.charAt(i);
+            if (isWhitespace(c) || c == '/') {
+                i++;
+                continue;
+            }
+            if (c == '>') {
+                break;
+            }
+
+            int nameStart = i;
+            i++;
+            while (i < end && !isWhitespace(tag.charAt(i)) && tag.charAt(i) != '/'
+                    && tag.charAt(i) != '>' && tag.charAt(i) != '=') {
+                i++;
+            }
+            int attributeNameEnd = i;
+            while (i < end && isWhitespace(tag.charAt(i))) {
+                i++;
+            }
+
+            int valueStart = -1;
+            int valueEnd = -1;
+            if (i < end && tag.charAt(i) == '=') {
+                i++;
+                while (i < end && isWhitespace(tag.charAt(i))) {
+                    i++;
+                }
+                valueStart = i;
+                if (i < end && (tag.charAt(i) == '"' || tag.charAt(i) == '\'')) {
+                    char quote = tag.charAt(i);
+                    i++;
+                    while (i < end && tag.charAt(i) != quote) {
+                        i++;
+                    }
+                    i = Math.min(i + 1, end);
+                } else {
+                    while (i < end && !isWhitespace(tag.charAt(i)) && tag.charAt(i) != '>') {
+                        i++;
+                    }
+                }
+                valueEnd = i;
+            } else {
+                i = attributeNameEnd;
+            }
+            attributes.add(new int[]{nameStart, attributeNameEnd, valueStart, valueEnd});
+        }
+    }
+
+    /** the index of the first attribute called name, -1 if the tag has none
+     */
+    private int attribute(String name) {
+        for (int i = 0; i < attributes.size(); i++) {
+            int[] attribute = attributes.get(i);
+            if (attribute[1] - attribute[0] == name.length()
+                    && tag.substring(attribute[0], attribute[1]).equalsIgnoreCase(name)) {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    /** the value of an attribute, quotes removed and entities decoded
+     */
+    private String value(int index) {
+        int[] attribute = attributes.get(index);
+        if (attribute[2] == -1) {
+            return "";
+        }
+        int start = attribute[2];
+        int end = attribute[3];
+        if (end > start && (tag.charAt(start) == '"' || tag.charAt(start) == '\'')) {
+            start++;
+            if (end > start && tag.charAt(end - 1) == tag.charAt(start - 1)) {
+                end--;
+            }
+        }
+        return Parser.unescapeEntities(tag.substring(start, end), true);
+    }
+
+    /** sets the value of the attribute at index, or adds the attribute if index is -1
+     */
+    private void set(int index, String name, String value) {
+        String quoted = "\"" + escape(value) + "\"";
+        if (index == -1) {
+            int end = tag.length();
+            if (end > 0 && tag.charAt(end - 1) == '>') {
+                end--;
+                if (end > nameEnd && tag.charAt(end - 1) == '/') {
+                    end--;
+                }
+            }
+            tag.insert(end, " " + name + "=" + quoted);
+        } else {
+            int[] attribute = attributes.get(index);
+            if (attribute[2] == -1) {
+                tag.insert(attribute[1], "=" + quoted);
+            } else {
+                tag.replace(attribute[2], attribute[3], quoted);
+            }
+        }
+        parseAttributes();
+    }
+
+    private String absolute(String url) {
+        return StringUtil.resolve(baseUri, url);
+    }
+
+    private static String escape(String value) {
+        return value.replace("&", "&amp;").replace("\"", "&quot;");
+    }
+
+    /** copies text up to the next '<' (capturing it as well if capture is set), false at the end of the page
+     */
+    private boolean copyText(@Nullable StringBuilder capture) throws IOException {
+        while (true) {
+            if (pos == limit && !fill(1)) {
+                return false;
+            }
+            int i = pos;
+            while (i < limit && buffer[i] != '<') {
+                i++;
+            }
+            emit(i, capture);
+            if (i < limit) {
+                return true;
+            }
+        }
+    }
+
+    /** copies the raw text of a script, style etc. up to its end tag
+     */
+    private void copyRawText(String name, @Nullable StringBuilder capture) throws IOException {
+        while (copyText(capture)) {
+            if (peek(1) == '/' && matchesIgnoreCase(2, name)) {
+                int after = peek(2 + name.length());
+                if (after == -1 || isWhitespace(after) || after == '/' || after == '>') {
+                    return;
+                }
+            }
+            out.append('<');
+            if (capture != null) {
+                capture.append('<');
+            }
+            pos++;
+        }
+    }
+
+    /** copies from pos through the next end, the first skip chars are known not to be part of it
+     */
+    private void copyThrough(String end, int skip) throws IOException {
+        for (int i = 0; i < skip && peek(0) != -1; i++) {
+            out.append(buffer[pos++]);
+        }
+        int c;
+        while ((c = peek(0)) != -1) {
+            if (c == end.charAt(0) && matchesIgnoreCase(0, end)) {
+                for (int i = 0; i < end.length(); i++) {
+                    out.append(buffer[pos++]);
+                }
+                return;
+            }
+            out.append((char) c);
+            pos++;
+        }
+    }
+
+    private boolean matchesIgnoreCase(int offset, String target) throws IOException {
+        for (int i = 0; i < target.length(); i++) {
+            int c = peek(offset + i);
+            if (c == -1 || Character.toLowerCase((char) c) != target.charAt(i)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private void emit(int end, @Nullable StringBuilder capture) throws IOException {
+        if (end > pos) {
+            out.append(view, pos, end);
+            if (capture != null) {
+                capture.append(buffer, pos, end - pos);
+            }
+            pos = end;
+        }
+    }
+
+    /** the char ahead of pos, -1 past the end of the page
+     */
+    private int peek(int ahead) throws IOException {
+        if (pos + ahead >= limit && !fill(ahead + 1)) {
+            return -1;
+        }
+        return buffer[pos + ahead];
+    }
+
+    /** reads until at least needed chars from pos on are buffered, false if the page ends first
+     */
+    private boolean fill(int needed) throws IOException {
+        if (pos > 0) {
+            System.arraycopy(buffer, pos, buffer, 0, limit - pos);
+            limit -= pos;
+            pos = 0;
+        }
+        if (needed > buffer.length) {
+            buffer = Arrays.copyOf(buffer, Math.max(needed, 2 * buffer.length));
+            view = CharBuffer.wrap(buffer);
+        }
+        while (limit < needed) {
+            int read = in.read(buffer, limit, buffer.length - limit);
+            if (read == -1) {
+                return false;
+            }
+            limit += read;
+        }
+        return true;
+    }
+
+    private static boolean isLetter(int c) {
+        return c >= 'a' && c <= 'z' || c >= 'A' && c <= 'Z';
+    }
+
+    private static boolean isWhitespace(int c) {
+        return c == ' ' || c == '\t' || c == '\n' || c == '\r' || c == '\f';
+    }
+}
@@ -0,0 +1,249 @@
+package utils;
+
+import org.jetbrains.annotations.NotNull;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * SearchQuery is a parsed advanced search query.
+ *
+ * syntax: words and "quoted phrases", combined with AND, OR, NOT and parentheses.
+ * adjacent terms are AND:ed, operators must be written in upper case, e.g.
+ *     volvo OR saab NOT "used cars"
+ *
+ * The query is evaluated against the match counts of its terms (see getTerms),
+ * so every term can be counted in a single pass before the query is evaluated.
+ *
+ * Terms match whole words of a page, the last word of a term also the words it is the start of:
+ * volvo matches volvos, "used car" matches "used cars" but not "reused car".
+ * Words longer than TextUtils.MAX_TERM_LENGTH are refused, the index only holds that much of a word.
+ */
+public class SearchQuery {
+    private final Node root;
+    private final List<String> terms;
+    private final boolean[] positive;
+
+    private SearchQuery(Node root, List<String> terms) {
+        this.root = root;
+        this.terms = Collections.unmodifiableList(terms);
+        this.positive = new boolean[terms.size()];
+        if (root != null) {
+            root.markPositive(positive, false);
+        }
+    }
+
+    /** @throws IllegalArgumentException if a word of the query is longer than TextUtils.MAX_TERM_LENGTH
+     */
+    public static SearchQuery parse(@NotNull String query) {
+        for (String word : TextUtils.tokenize(query)) {
+            if (word.length() > TextUtils.MAX_TERM_LENGTH) {
+                throw new IllegalArgumentException("search words are at most " + TextUtils.MAX_TERM_LENGTH + " characters long");
+            }
+        }
+
+        Parser parser = new Parser(tokenize(query));
+        Node root = parser.parseOr();
+
+        // skip stray closing parentheses and keep going
+        while (parser.position < parser.tokens.size()) {
+            parser.position++;
+            Node next = parser.parseOr();
+            root = root == null ? next : next == null ? root : new Node(Node.AND, root, next, -1);
+        }
+
+        return new SearchQuery(root, parser.terms);
+    }
+
+    /** the words and phrases of the query, in the order their counts are expected
+     */
+    public List<String> getTerms() { return terms; }
+
+    /** evaluates the query given the number of matches of every term
+     */
+    public boolean evaluate(int[] counts) {
+        return root != null && root.evaluate(counts);
+    }
+
+    /** sums up the matches of the terms that are not negated, used as the match count of a hit
+     */
+    public int matches(int[] counts) {
+        int matches = 0;
+        for (int i = 0; i < counts.length; i++) {
+            if (positive[i]) {
+                matches += counts[i];
+            }
+        }
+        return matches;
+    }
+
+    /** true if a document not containing any of the terms matches, e.g. 'NOT volvo'
+     */
+    public boolean matchesEmpty() {
+        return evaluate(new int[terms.size()]);
+    }
+
+    private static List<String> tokenize(String query) {
+        List<String> tokens = new ArrayList<>();
+        int i = 0;
+
+        while (i < query.length()) {
+            char c = query.charAt(i);
+
+            if (Character.isWhitespace(c)) {
+                i++;
+            }
+            else if (c == '(' || c == ')') {
+                tokens.add(String.valueOf(c));
+                i++;
+            }
+            else if (c == '"') {
+                // an unterminated phrase runs to the end of the query
+                int end = query.indexOf('"', i + 1);
+                if (end == -1) {
+                    end = query.length();
+                }
+                String phrase = query.substring(i + 1, end).trim().replaceAll("\\s+", " ");
+                if (!phrase.isEmpty()) {
+                    tokens.add('"' + phrase);
+                }
+                i = end + 1;
+            }
+            else {
+                int start = i;
+                while (i < query.length() && !Character.isWhitespace(query.charAt(i))
+                        && "()\"".indexOf(query.charAt(i)) == -1) {
+                    i++;
+                }
+                tokens.add(query.substring(start, i));
+            }
+        }
+
+        return tokens;
+    }
+
+    /**
+     * recursive descent parser, lenient towards stray operators and unbalanced parentheses
+     *
+     * or      := and ("OR" and)*
+     * and     := not (["AND"] not)*
+     * not     := "NOT" not | primary
+     * primary := "(" or ")" | phrase | word
+     */
+    private static class Parser {
+        private final List<String> tokens;
+        private final List<String> terms = new ArrayList<>();
+        private int position = 0;
+
+        private Parser(List<String> tokens) {
+            this.tokens = tokens;
+        }
+
+        private Node parseOr() {
+            Node left = parseAnd();
+            while (accept("OR")) {
+                Node right = parseAnd();
+                left = left == null ? right : right == null ? left : new Node(Node.OR, left, right, -1);
+            }
+            return left;
+        }
+
+        private Node parseAnd() {
+            Node left = parseNot();
+            while (position < tokens.size() && !peek("OR") && !peek(")")) {
+                accept("AND");
+                Node right = parseNot();
+                left = left == null ? right : right == null ? left : new Node(Node.AND, left, right, -1);
+            }
+            return left;
+        }
+
+        private Node parseNot() {
+            if (accept("NOT")) {
+                Node operand = parseNot();
+                return operand == null ? null : new Node(Node.NOT, operand, null, -1);
+            }
+            return parsePrimary();
+        }
+
+        private Node parsePrimary() {
+            if (position >= tokens.size()) {
+                return null;
+            }
+
+            String token = tokens.get(position++);
+            if (token.equals("(")) {
+                Node inner = parseOr();
+                accept(")");
+                return inner;
+            }
+            if (token.equals(")") || token.equals("AND") || token.equals("OR")) {
+                return null;
+            }
+
+            String term = token.startsWith("\"") ? token.substring(1) : token;
+            int index = terms.indexOf(term);
+            if (index == -1) {
+                index = terms.size();
+                terms.add(term);
+            }
+            return new Node(Node.TERM, null, null, index);
+        }
+
+        private boolean peek(String token) {
+            return position < tokens.size() && tokens.get(position).equals(token);
+        }
+
+        private boolean accept(String token) {
+            if (peek(token)) {
+                position++;
+                return true;
+            }
+            return false;
+        }
+    }
+
+    private static class Node {
+        private static final int TERM = 0;
+        private static final int AND = 1;
+        private static final int OR = 2;
+        private static final int NOT = 3;
+
+        private final int type;
+        private final Node left;
+        private final Node right;
+        private final int term;
+
+        private Node(int type, Node left, Node right, int term) {
+            this.type = type;
+            this.left = left;
+            this.right = right;
+            this.term = term;
+        }
+
+        private boolean evaluate(int[] counts) {
+            switch (type) {
+                case AND: return left.evaluate(counts) && right.evaluate(counts);
+                case OR:  return left.evaluate(counts) || right.evaluate(counts);
+                case NOT: return !left.evaluate(counts);
+                default:  return counts[term] != 0;
+            }
+        }
+
+        private void markPositive(boolean[] positive, boolean negated) {
+            switch (type) {
+                case AND:
+                case OR:
+                    left.markPositive(positive, negated);
+                    right.markPositive(positive, negated);
+                    break;
+                case NOT:
+                    left.markPositive(positive, !negated);
+                    break;
+                default:
+                    positive[term] |= !negated;
+            }
+        }
+    }
+}
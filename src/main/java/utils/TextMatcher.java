@@ -0,0 +1,74 @@
+package utils;
+
+import org.jetbrains.annotations.NotNull;
+
+import java.util.Arrays;
+
+/**
+ * TextMatcher is a precompiled, case insensitive Boyer-Moore-Horspool matcher.
+ * A matcher is immutable and can be shared between threads.
+ */
+public class TextMatcher {
+    private static final int TABLE_SIZE = 256;
+
+    private final char[] pattern;
+    private final int[] shift = new int[TABLE_SIZE];
+
+    private TextMatcher(char[] pattern) {
+        this.pattern = pattern;
+
+        // chars sharing a bucket keep the smallest shift, which is always safe
+        Arrays.fill(shift, pattern.length);
+        for (int i = 0; i < pattern.length - 1; i++) {
+            int bucket = pattern[i] & (TABLE_SIZE - 1);
+            shift[bucket] = Math.min(shift[bucket], pattern.length - 1 - i);
+        }
+    }
+
+    public static TextMatcher compile(@NotNull String pattern) {
+        char[] folded = new char[pattern.length()];
+        for (int i = 0; i < folded.length; i++) {
+            folded[i] = fold(pattern.charAt(i));
+        }
+        return new TextMatcher(folded);
+    }
+
+    public int length() { return pattern.length; }
+
+    /** counts non overlapping occurrences of the pattern in text, in a single left to right pass
+     */
+    public int count(@NotNull CharSequence text) {
+        int m = pattern.length;
+        if (m == 0) {
+            return 0;
+        }
+
+        int count = 0;
+        int last = text.length() - m;
+        int i = 0;
+
+        while (i <= last) {
+            int j = m - 1;
+            while (j >= 0 && fold(text.charAt(i + j)) == pattern[j]) {
+                j--;
+            }
+            if (j < 0) {
+                count++;
+                i += m;
+            } else {
+                i += shift[fold(text.charAt(i + m - 1)) & (TABLE_SIZE - 1)];
+            }
+        }
+
+        return count;
+    }
+
+    /** maps a char onto the form it is compared in, so that e.g. 'Å' and 'å' are equal
+     */
+    static char fold(char c) {
+        if (c < 128) {
+            return (c >= 'A' && c <= 'Z') ? (char) (c + ('a' - 'A')) : c;
+        }
+        return Character.toLowerCase(Character.toUpperCase(c));
+    }
+}
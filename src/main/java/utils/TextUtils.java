@@ -0,0 +1,62 @@
+package utils;
+
+import java.util.ArrayList;
+import java.util.List;
+
+public class TextUtils {
+    /** longer terms are indexed by their first MAX_TERM_LENGTH chars, longer search words are refused */
+    public static final int MAX_TERM_LENGTH = 64;
+
+    private TextUtils() {
+        throw new UnsupportedOperationException();
+    }
+
+    /** receives every term found by tokenize together with its position in the text
+     */
+    public interface TermConsumer {
+
+        void accept(String term, int position);
+    }
+
+    /** splits text into lower case terms made up of letters and digits,
+     * positions are counted in terms, not in chars
+     */
+    public static int tokenize(CharSequence text, TermConsumer consumer) {
+        StringBuilder term = new StringBuilder();
+        int position = 0;
+
+        for (int i = 0; i < text.length(); i++) {
+            char c = text.charAt(i);
+
+            if (Character.isLetterOrDigit(c)) {
+                term.append(Character.toLowerCase(c));
+            }
+            else if (term.length() != 0) {
+                consumer.accept(term.toString(), position++);
+                term.setLength(0);
+            }
+        }
+
+        if (term.length() != 0) {
+            consumer.accept(term.toString(), position++);
+        }
+
+        return position;
+    }
+
+    /** the terms of text, each after a single space: "Used cars, sold" -> " used cars sold".
+     * words(term) found in words(text) is a match the index finds as well: it starts at a word,
+     * its words are whole but for the last one, which may go on
+     */
+    public static String words(CharSequence text) {
+        StringBuilder words = new StringBuilder(text.length() + 1);
+        tokenize(text, (term, position) -> words.append(' ').append(term));
+        return words.toString();
+    }
+
+    public static List<String> tokenize(CharSequence text) {
+        List<String> terms = new ArrayList<>();
+        tokenize(text, (term, position) -> terms.add(term));
+        return terms;
+    }
+}
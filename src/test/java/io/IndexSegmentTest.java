@@ -0,0 +1,145 @@
+package io;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import utils.TextUtils;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.Collections;
+
+import static org.junit.Assert.*;
+
+public class IndexSegmentTest {
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    @Test
+    public void writesAndReadsPostings() throws IOException {
+        IndexSegment.Builder builder = new IndexSegment.Builder();
+        builder.addDocument("1.html", "First", "Used cars, used bikes");
+        builder.addDocument("2.html", "Second", "Nothing used here");
+
+        try (IndexSegment segment = build(builder)) {
+            assertEquals(2, segment.getDocCount());
+            assertEquals("First", segment.getDocTitle(docId(segment, "1.html")));
+
+            IndexSegment.Postings used = segment.getPostings("used");
+            assertEquals(2, used.size());
+            assertArrayEquals(new int[] {0, 2}, positionsOf(segment, used, "1.html"));
+            assertArrayEquals(new int[] {1}, positionsOf(segment, used, "2.html"));
+
+            assertNull(segment.getPostings("use"));
+            assertNull(segment.getPostings("trucks"));
+        }
+    }
+
+    @Test
+    public void mergeKeepsTheNewestDocument() throws IOException {
+        IndexSegment.Builder older = new IndexSegment.Builder();
+        older.addDocument("a.html", "old a", "sold out of used cars");
+        older.addDocument("b.html", "b", "bikes and cars");
+        IndexSegment.Builder newer = new IndexSegment.Builder();
+        newer.addDocument("a.html", "new a", "new bikes for sale and used cars");
+
+        try (IndexSegment merged = merge(older, newer)) {
+            assertEquals(2, merged.getDocCount());
+            assertEquals("new a", merged.getDocTitle(docId(merged, "a.html")));
+            assertEquals("b", merged.getDocTitle(docId(merged, "b.html")));
+
+            // only in the superseded version of a.html
+            IndexSegment.Postings sold = merged.getPostings("sold");
+            assertTrue(sold == null || sold.size() == 0);
+
+            IndexSegment.Postings bikes = merged.getPostings("bikes");
+            assertEquals(2, bikes.size());
+            assertArrayEquals(new int[] {1}, positionsOf(merged, bikes, "a.html"));
+            assertArrayEquals(new int[] {0}, positionsOf(merged, bikes, "b.html"));
+        }
+    }
+
+    @Test
+    public void mergePreservesPositionsForPhrases() throws IOException {
+        IndexSegment.Builder older = new IndexSegment.Builder();
+        older.addDocument("a.html", "a", "cars");
+        older.addDocument("c.html", "c", "we sell used cars and used boats");
+        IndexSegment.Builder newer = new IndexSegment.Builder();
+        newer.addDocument("a.html", "a", "used cars, used cars");
+
+        try (IndexSegment merged = merge(older, newer)) {
+            IndexSegment.Postings used = merged.getPostings("used");
+            IndexSegment.Postings cars = merged.getPostings("cars");
+
+            assertArrayEquals(new int[] {0, 2}, positionsOf(merged, used, "a.html"));
+            assertArrayEquals(new int[] {1, 3}, positionsOf(merged, cars, "a.html"));
+            assertArrayEquals(new int[] {2, 5}, positionsOf(merged, used, "c.html"));
+            assertArrayEquals(new int[] {3}, positionsOf(merged, cars, "c.html"));
+        }
+    }
+
+    @Test
+    public void prefixPostingsMergeEveryMatchingTerm() throws IOException {
+        IndexSegment.Builder older = new IndexSegment.Builder();
+        older.addDocument("a.html", "a", "volvo");
+        IndexSegment.Builder newer = new IndexSegment.Builder();
+        newer.addDocument("b.html", "b", "volvos and a volvo, not kvolvo");
+
+        try (IndexSegment merged = merge(older, newer)) {
+            IndexSegment.Postings volvo = merged.getPrefixPostings("volvo");
+            assertEquals(2, volvo.size());
+            assertArrayEquals(new int[] {0}, positionsOf(merged, volvo, "a.html"));
+            // volvos and volvo, sorted, kvolvo doesn't start with the prefix
+            assertArrayEquals(new int[] {0, 3}, positionsOf(merged, volvo, "b.html"));
+
+            assertEquals(1, merged.getPrefixPostings("volvos").size());
+            assertNull(merged.getPrefixPostings("saab"));
+            assertNull(merged.getPrefixPostings("zzz"));
+        }
+    }
+
+    @Test
+    public void longTermsAreFoundByTheirPrefix() throws IOException {
+        String word = String.join("", Collections.nCopies(100, "x"));
+        IndexSegment.Builder builder = new IndexSegment.Builder();
+        builder.addDocument("1.html", "long", "a " + word + " b");
+
+        try (IndexSegment segment = build(builder)) {
+            assertNull(segment.getPostings(word));
+            IndexSegment.Postings postings = segment.getPrefixPostings(word.substring(0, TextUtils.MAX_TERM_LENGTH));
+            assertEquals(1, postings.size());
+            assertArrayEquals(new int[] {1}, postings.getPositions(0));
+        }
+    }
+
+    private IndexSegment build(IndexSegment.Builder builder) throws IOException {
+        File file = folder.newFile();
+        builder.write(file);
+        return IndexSegment.open(file);
+    }
+
+    private IndexSegment merge(IndexSegment.Builder older, IndexSegment.Builder newer) throws IOException {
+        File merged = folder.newFile();
+        try (IndexSegment first = build(older); IndexSegment second = build(newer)) {
+            IndexSegment.merge(Arrays.asList(first, second), merged);
+        }
+        return IndexSegment.open(merged);
+    }
+
+    private static int docId(IndexSegment segment, String name) {
+        for (int docId = 0; docId < segment.getDocCount(); docId++) {
+            if (segment.getDocName(docId).equals(name)) {
+                return docId;
+            }
+        }
+        throw new AssertionError("no " + name + " in the segment");
+    }
+
+    private static int[] positionsOf(IndexSegment segment, IndexSegment.Postings postings, String name) {
+        int i = postings.indexOf(docId(segment, name));
+        assertTrue(name + " has no postings", i >= 0);
+        return postings.getPositions(i);
+    }
+}
@@ -0,0 +1,116 @@
+package io;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Comparator;
+import java.util.stream.Stream;
+
+import static org.junit.Assert.*;
+
+public class PageStoreTest {
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    @Test
+    public void deltaChainsStartOverWithAKeyframe() throws IOException {
+        int days = PageStore.KEYFRAME_INTERVAL + 2;
+        File[] snapshots = new File[days];
+        for (int day = 0; day < days; day++) {
+            snapshots[day] = new File(folder.newFolder("day" + day), "page.html");
+            PageStore.write(snapshots[day], page(day), day > 0 ? snapshots[day - 1] : null);
+        }
+
+        for (int day = 0; day < days; day++) {
+            // full every KEYFRAME_INTERVAL:th day, a delta against the day before in between
+            boolean keyframe = day % PageStore.KEYFRAME_INTERVAL == 0;
+            assertEquals("day " + day, keyframe, snapshots[day].exists());
+            assertEquals("day " + day, !keyframe, PageStore.deltaOf(snapshots[day]).exists());
+
+            PageStore.forget(snapshots[day]);
+            assertEquals("day " + day, page(day), PageStore.read(snapshots[day]));
+        }
+    }
+
+    @Test
+    public void aLinkedDeltaReadsFromItsNewFolder() throws IOException {
+        File first = new File(folder.newFolder("day1"), "page.html");
+        File second = new File(folder.newFolder("day2"), "page.html");
+        File third = new File(folder.newFolder("day3"), "page.html");
+        PageStore.write(first, page(1), null);
+        PageStore.write(second, page(2), first);
+        assertTrue(PageStore.deltaOf(second).exists());
+
+        PageStore.link(second, third);
+        assertFalse(third.exists());
+        assertTrue(PageStore.deltaOf(third).exists());
+        assertEquals(page(2), PageStore.read(third));
+
+        // rebased onto the first day, not a delta of the day it was linked from
+        delete(second.getParentFile());
+        PageStore.forget(third);
+        assertEquals(page(2), PageStore.read(third));
+        assertTrue(PageStore.exists(third));
+    }
+
+    @Test
+    public void deltasReadTheirBaseAfterItIsRelinked() throws IOException {
+        File first = new File(folder.newFolder("day1"), "page.html");
+        File second = new File(folder.newFolder("day2"), "page.html");
+        File third = new File(folder.newFolder("day3"), "page.html");
+        PageStore.write(first, page(1), null);
+        PageStore.write(second, page(2), first);
+
+        // the base turns up unchanged on day 3 and is re-linked into day 1's folder from there
+        PageStore.link(first, third);
+        PageStore.link(third, first);
+        PageStore.forget(second);
+        assertEquals(page(1), PageStore.read(first));
+        assertEquals(page(1), PageStore.read(third));
+        assertEquals(page(2), PageStore.read(second));
+
+        // a new snapshot written over day 3 never writes through the link into the base
+        PageStore.write(third, page(3), second);
+        PageStore.forget(first);
+        PageStore.forget(second);
+        assertEquals(page(1), PageStore.read(first));
+        assertEquals(page(2), PageStore.read(second));
+        assertEquals(page(3), PageStore.read(third));
+    }
+
+    @Test
+    public void writesInFullWhenADeltaDoesNotPayOff() throws IOException {
+        File first = new File(folder.newFolder("day1"), "page.html");
+        File second = new File(folder.newFolder("day2"), "page.html");
+        PageStore.write(first, page(1), null);
+        String rewritten = page(1).replace("line", "row");
+        PageStore.write(second, rewritten, first);
+
+        assertTrue(second.exists());
+        assertFalse(PageStore.deltaOf(second).exists());
+        assertEquals(rewritten, PageStore.read(second));
+    }
+
+    /** a page of many lines, version changes one of them and adds another */
+    private static String page(int version) {
+        StringBuilder html = new StringBuilder("<html><body>\n");
+        for (int i = 0; i < 40; i++) {
+            html.append(i == version ? "<p>line " + i + " of version " + version + "</p>\n" : "<p>line " + i + " åäö</p>\n");
+        }
+        return html.append("<p>version ").append(version).append("</p>\n</body></html>").toString();
+    }
+
+    private static void delete(File dir) throws IOException {
+        try (Stream<Path> paths = Files.walk(dir.toPath())) {
+            for (Path path : (Iterable<Path>) paths.sorted(Comparator.reverseOrder())::iterator) {
+                Files.delete(path);
+            }
+        }
+    }
+}
@@ -0,0 +1,117 @@
+package io;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+import static org.junit.Assert.*;
+
+public class WarcWriterTest {
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    @Test
+    public void readsEveryRecordByItsOffset() throws IOException {
+        File htmlFolder = folder.newFolder("html");
+        List<String> pages = pages();
+        try (WarcWriter writer = new WarcWriter(htmlFolder)) {
+            for (int i = 0; i < pages.size(); i++) {
+                writer.append(i + ".html", "http://www.example.com/" + i, pages.get(i));
+            }
+        }
+
+        assertEquals(pages.size(), PageStore.list(htmlFolder).size());
+        for (int i = 0; i < pages.size(); i++) {
+            File page = new File(htmlFolder, i + ".html");
+            assertTrue(PageStore.isRecord(page));
+            assertEquals(pages.get(i), read(page));
+            assertEquals(pages.get(i), PageStore.read(page));
+        }
+    }
+
+    @Test
+    public void appendsToTheSegmentOfAnEarlierCrawl() throws IOException {
+        File htmlFolder = folder.newFolder("html");
+        try (WarcWriter writer = new WarcWriter(htmlFolder)) {
+            writer.append("a.html", "http://www.example.com/a", "<p>a</p>");
+            writer.append("b.html", "http://www.example.com/b", "<p>b</p>");
+        }
+        assertEquals("<p>b</p>", read(new File(htmlFolder, "b.html")));
+
+        try (WarcWriter writer = new WarcWriter(htmlFolder)) {
+            writer.append("b.html", "http://www.example.com/b", "<p>b, again</p>");
+            writer.append("c.html", "http://www.example.com/c", "");
+        }
+        assertEquals("<p>a</p>", read(new File(htmlFolder, "a.html")));
+        assertEquals("<p>b, again</p>", read(new File(htmlFolder, "b.html")));
+        assertEquals("<p>b, again</p>", PageStore.read(new File(htmlFolder, "b.html")));
+        assertEquals("", read(new File(htmlFolder, "c.html")));
+    }
+
+    @Test
+    public void aTruncatedTailFailsOnlyItsOwnRecord() throws IOException {
+        File htmlFolder = folder.newFolder("html");
+        List<String> pages = pages();
+        try (WarcWriter writer = new WarcWriter(htmlFolder)) {
+            for (int i = 0; i < pages.size(); i++) {
+                writer.append(i + ".html", "http://www.example.com/" + i, pages.get(i));
+            }
+        }
+        try (RandomAccessFile segment = new RandomAccessFile(new File(htmlFolder, PageStore.SEGMENT_FILE), "rw")) {
+            segment.setLength(segment.length() - 10);
+        }
+
+        int last = pages.size() - 1;
+        for (int i = 0; i < last; i++) {
+            assertEquals(pages.get(i), read(new File(htmlFolder, i + ".html")));
+        }
+        try {
+            read(new File(htmlFolder, last + ".html"));
+            fail("read a truncated record");
+        } catch (IOException expected) {
+            // the record's gzip member is cut short
+        }
+    }
+
+    @Test
+    public void anIndexLineStillBeingWrittenIsIgnored() throws IOException {
+        File htmlFolder = folder.newFolder("html");
+        try (WarcWriter writer = new WarcWriter(htmlFolder)) {
+            writer.append("a.html", "http://www.example.com/a", "<p>a</p>");
+        }
+        try (FileOutputStream index = new FileOutputStream(new File(htmlFolder, PageStore.SEGMENT_INDEX), true)) {
+            index.write("b.html 1234".getBytes(StandardCharsets.UTF_8));
+        }
+
+        assertEquals("<p>a</p>", read(new File(htmlFolder, "a.html")));
+        assertFalse(PageStore.exists(new File(htmlFolder, "b.html")));
+    }
+
+    private static String read(File page) throws IOException {
+        return StandardCharsets.UTF_8.decode(ArchiveReader.bytes(page)).toString();
+    }
+
+    /** plain, empty, non-ASCII and large pages */
+    private static List<String> pages() {
+        List<String> pages = new ArrayList<>();
+        pages.add("<html><head><title>plain</title></head><body><p>plain</p></body></html>");
+        pages.add("");
+        pages.add("<p>Räksmörgås, 日本語, emoji 😀</p>\r\n\r\n");
+        pages.add(String.join("\n", Collections.nCopies(20_000, "<p>a line of a large page</p>")));
+        for (int i = 0; i < 20; i++) {
+            pages.add("<p>page " + i + "</p>");
+        }
+        pages.add("<p>last</p>");
+        return pages;
+    }
+}
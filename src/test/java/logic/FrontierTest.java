@@ -0,0 +1,180 @@
+package logic;
+
+import objects.FingerprintSeenSet;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.Assert.*;
+
+public class FrontierTest {
+    private static final int HOSTS = 8;
+
+    @Test
+    public void commitsTheBudgetDespiteFailuresAndThrottling() throws InterruptedException {
+        Site site = new Site(100_000);
+        AtomicInteger exhausted = new AtomicInteger();
+        Frontier frontier = new Frontier(new FingerprintSeenSet(1024), 60, exhausted::incrementAndGet, 4);
+
+        frontier.offer(site.url(0), 0);
+        crawl(frontier, site);
+
+        assertEquals(60, site.committed.get());
+        assertEquals(1, exhausted.get());
+        assertTrue(site.failed.get() > 0);
+        assertTrue(site.throttled.get() > 0);
+        assertNull(frontier.take());
+    }
+
+    @Test
+    public void endsOnceASmallSiteIsExhausted() throws InterruptedException {
+        Site site = new Site(30);
+        AtomicInteger exhausted = new AtomicInteger();
+        Frontier frontier = new Frontier(new FingerprintSeenSet(1024), 1000, exhausted::incrementAndGet, 4);
+
+        frontier.offer(site.url(0), 0);
+        crawl(frontier, site);
+
+        assertEquals(site.reachable(0), site.committed.get());
+        assertEquals(1, exhausted.get());
+        assertNull(frontier.take());
+    }
+
+    @Test
+    public void threadsCommitTheBudgetAndEndTheCrawlOnce() throws InterruptedException {
+        Site site = new Site(100_000);
+        AtomicInteger exhausted = new AtomicInteger();
+        Frontier frontier = new Frontier(new FingerprintSeenSet(1024), 200, exhausted::incrementAndGet, 4);
+        frontier.offer(site.url(0), 0);
+
+        List<Thread> threads = new ArrayList<>();
+        for (int i = 0; i < 6; i++) {
+            Thread thread = new Thread(() -> {
+                try {
+                    crawl(frontier, site);
+                } catch (InterruptedException ex) {
+                    Thread.currentThread().interrupt();
+                }
+            });
+            threads.add(thread);
+            thread.start();
+        }
+        for (Thread thread : threads) {
+            thread.join(60_000);
+            assertFalse(thread.isAlive());
+        }
+
+        assertEquals(200, site.committed.get());
+        assertEquals(1, exhausted.get());
+        assertEquals(0, frontier.inFlight());
+    }
+
+    @Test
+    public void offeredUrlsAreQueuedOnce() throws InterruptedException {
+        AtomicInteger exhausted = new AtomicInteger();
+        Frontier frontier = new Frontier(new FingerprintSeenSet(1024), 2, exhausted::incrementAndGet, 4);
+
+        assertTrue(frontier.offer("http://www.example.com/a", 0));
+        assertFalse(frontier.offer("http://www.example.com/a", 0));
+        assertTrue(frontier.offer("http://www.example.com/b", 0));
+        // the budget is covered, kept aside until a fetch fails
+        assertFalse(frontier.offer("http://www.example.com/c", 1));
+        assertFalse(frontier.offer("http://www.example.com/c", 1));
+        assertEquals(2, frontier.size());
+
+        Frontier.Entry a = frontier.take();
+        frontier.robotsRead(a, 0);
+        frontier.done(a);
+        assertEquals(2, frontier.size());
+
+        Frontier.Entry b = frontier.take();
+        Frontier.Entry c = frontier.take();
+        assertEquals("http://www.example.com/b", b.url);
+        assertEquals("http://www.example.com/c", c.url);
+        frontier.commit(b);
+        frontier.commit(c);
+        frontier.done(b);
+        assertEquals(0, exhausted.get());
+        frontier.done(c);
+        assertEquals(1, exhausted.get());
+        assertNull(frontier.take());
+    }
+
+    /** what a crawl thread does with what it takes, see Crawler */
+    private static void crawl(Frontier frontier, Site site) throws InterruptedException {
+        Frontier.Entry entry;
+        while ((entry = frontier.take()) != null) {
+            try {
+                if (frontier.needsRobots(entry)) {
+                    frontier.robotsRead(entry, 0);
+                }
+                site.fetch(frontier, entry);
+            } finally {
+                frontier.done(entry);
+            }
+        }
+    }
+
+    /**
+     * Site is a tree of pages spread over HOSTS hosts, every page answers the same way each time it's asked:
+     * most are fetched, one in five fails and one in fifty answers 429 once, a real wait as the host backs off
+     */
+    private static class Site {
+        private final int pages;
+        private final Map<String, Boolean> throttledOnce = new ConcurrentHashMap<>();
+        private final AtomicInteger committed = new AtomicInteger();
+        private final AtomicInteger failed = new AtomicInteger();
+        private final AtomicInteger throttled = new AtomicInteger();
+
+        private Site(int pages) {
+            this.pages = pages;
+        }
+
+        private String url(int page) {
+            return "http://host" + page % HOSTS + ".example.com/" + page;
+        }
+
+        /** pages fetched by a crawl from page on without a budget: a failed page's links are never found */
+        private int reachable(int page) {
+            if (page >= pages || fails(page)) {
+                return 0;
+            }
+            return 1 + reachable(3 * page + 1) + reachable(3 * page + 2) + reachable(3 * page + 3);
+        }
+
+        private static boolean fails(int page) {
+            return outcome(page) >= 1 && outcome(page) <= 10;
+        }
+
+        private static int outcome(int page) {
+            return Math.floorMod(page * 7919 + 17, 50);
+        }
+
+        private void fetch(Frontier frontier, Frontier.Entry entry) {
+            int page = Integer.parseInt(entry.url.substring(entry.url.lastIndexOf('/') + 1));
+            int outcome = outcome(page);
+
+            if (outcome == 0 && throttledOnce.putIfAbsent(entry.url, true) == null) {
+                throttled.incrementAndGet();
+                if (!frontier.throttled(entry, 0)) {
+                    failed.incrementAndGet();
+                }
+                return;
+            }
+            if (fails(page)) {
+                failed.incrementAndGet();
+                return;
+            }
+            frontier.succeeded(entry, 5);
+            frontier.commit(entry);
+            committed.incrementAndGet();
+            for (int link = 3 * page + 1; link <= 3 * page + 3 && link < pages; link++) {
+                frontier.offer(url(link), entry.depth + 1);
+            }
+        }
+    }
+}
@@ -0,0 +1,63 @@
+package utils;
+
+import org.junit.Test;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+
+import static org.junit.Assert.*;
+
+public class AhoCorasickTest {
+
+    /** text, pattern, non overlapping occurrences
+     */
+    private static final Object[][] CASES = {
+            {"aaaa", "aa", 2},
+            {"aaaaa", "aa", 2},
+            {"ababab", "abab", 1},
+            {"abababab", "abab", 2},
+            {"AaA", "a", 3},
+            {"Ångström ångström", "ÅNG", 2},
+            {" used cars reused cars", " used car", 1},
+            {"abc", "abcd", 0},
+            {"abc", "", 0},
+            {"", "a", 0},
+    };
+
+    @Test
+    public void countsNonOverlappingOccurrences() {
+        for (Object[] row : CASES) {
+            String text = (String) row[0];
+            String pattern = (String) row[1];
+            assertEquals(text + " / " + pattern, row[2], TextMatcher.compile(pattern).count(text));
+            assertEquals(text + " / " + pattern, row[2], AhoCorasick.compile(Arrays.asList(pattern)).count(text)[0]);
+        }
+    }
+
+    @Test
+    public void agreesWithTextMatcherOnOverlappingPatterns() {
+        List<String> patterns = Arrays.asList("a", "aa", "aaa", "ab", "ba", "aba", "bab", "abab", "b a", " a",
+                "åa", "Å", "AB", "", "aaaaaaaa");
+        AhoCorasick automaton = AhoCorasick.compile(patterns);
+        TextMatcher[] matchers = new TextMatcher[patterns.size()];
+        for (int p = 0; p < patterns.size(); p++) {
+            matchers[p] = TextMatcher.compile(patterns.get(p));
+        }
+
+        Random random = new Random(42);
+        String alphabet = "aabAB å";
+        for (int round = 0; round < 2000; round++) {
+            StringBuilder text = new StringBuilder();
+            int length = random.nextInt(64);
+            for (int i = 0; i < length; i++) {
+                text.append(alphabet.charAt(random.nextInt(alphabet.length())));
+            }
+
+            int[] counts = automaton.count(text);
+            for (int p = 0; p < patterns.size(); p++) {
+                assertEquals("'" + patterns.get(p) + "' in '" + text + "'", matchers[p].count(text), counts[p]);
+            }
+        }
+    }
+}
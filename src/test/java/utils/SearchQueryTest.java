@@ -0,0 +1,115 @@
+package utils;
+
+import org.junit.Test;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+import static org.junit.Assert.*;
+
+public class SearchQueryTest {
+
+    /** query, its terms, then pairs of term counts and whether the query matches them
+     */
+    private static final Object[][] CASES = {
+            {"volvo saab", terms("volvo", "saab"),
+                    counts(1, 1), true, counts(1, 0), false},
+            {"volvo AND saab", terms("volvo", "saab"),
+                    counts(1, 1), true, counts(0, 1), false},
+            {"volvo OR saab", terms("volvo", "saab"),
+                    counts(0, 1), true, counts(0, 0), false},
+            {"volvo NOT saab", terms("volvo", "saab"),
+                    counts(1, 0), true, counts(1, 1), false},
+            {"volvo OR saab NOT \"used cars\"", terms("volvo", "saab", "used cars"),
+                    counts(1, 0, 0), true, counts(1, 0, 1), true, counts(0, 1, 1), false},
+            {"(volvo OR saab) NOT \"used cars\"", terms("volvo", "saab", "used cars"),
+                    counts(1, 0, 1), false, counts(0, 1, 0), true},
+            {"volvo volvo", terms("volvo"),
+                    counts(1), true},
+            // lenient: stray and unbalanced parentheses
+            {"volvo )", terms("volvo"),
+                    counts(1), true, counts(0), false},
+            {") volvo", terms("volvo"),
+                    counts(1), true},
+            {"volvo ) saab", terms("volvo", "saab"),
+                    counts(1, 1), true, counts(1, 0), false},
+            {"(volvo OR saab", terms("volvo", "saab"),
+                    counts(0, 1), true},
+            {"()", terms(),
+                    counts(), false},
+            // lenient: phrases
+            {"\"used cars", terms("used cars"),
+                    counts(1), true},
+            {"\"used   cars\"", terms("used cars"),
+                    counts(1), true},
+            {"\"\" volvo", terms("volvo"),
+                    counts(1), true},
+            // lenient: stray operators
+            {"NOT", terms(),
+                    counts(), false},
+            {"volvo AND", terms("volvo"),
+                    counts(1), true},
+            {"OR volvo", terms("volvo"),
+                    counts(1), true},
+            {"AND OR NOT", terms(),
+                    counts(), false},
+            {"NOT NOT volvo", terms("volvo"),
+                    counts(1), true, counts(0), false},
+            // operators are upper case only
+            {"volvo or saab", terms("volvo", "or", "saab"),
+                    counts(1, 0, 1), false, counts(1, 1, 1), true},
+    };
+
+    @Test
+    public void parsesAndEvaluates() {
+        for (Object[] row : CASES) {
+            String query = (String) row[0];
+            SearchQuery parsed = SearchQuery.parse(query);
+            assertEquals(query, row[1], parsed.getTerms());
+
+            for (int i = 2; i < row.length; i += 2) {
+                int[] counts = (int[]) row[i];
+                assertEquals(query + " with " + Arrays.toString(counts), row[i + 1], parsed.evaluate(counts));
+            }
+        }
+    }
+
+    @Test
+    public void matchesEmpty() {
+        assertTrue(SearchQuery.parse("NOT volvo").matchesEmpty());
+        assertTrue(SearchQuery.parse("NOT volvo NOT saab").matchesEmpty());
+        assertTrue(SearchQuery.parse("volvo OR NOT saab").matchesEmpty());
+        assertFalse(SearchQuery.parse("NOT NOT volvo").matchesEmpty());
+        assertFalse(SearchQuery.parse("volvo NOT saab").matchesEmpty());
+        assertFalse(SearchQuery.parse("NOT").matchesEmpty());
+        assertFalse(SearchQuery.parse("").matchesEmpty());
+    }
+
+    @Test
+    public void countsOnlyTermsThatAreNotNegated() {
+        SearchQuery query = SearchQuery.parse("volvo NOT saab OR NOT NOT \"used cars\"");
+        assertEquals(terms("volvo", "saab", "used cars"), query.getTerms());
+        assertEquals(2 + 5, query.matches(counts(2, 3, 5)));
+    }
+
+    @Test
+    public void refusesWordsTheIndexCantHold() {
+        String longest = String.join("", Collections.nCopies(TextUtils.MAX_TERM_LENGTH, "x"));
+        assertEquals(terms(longest), SearchQuery.parse(longest).getTerms());
+        try {
+            SearchQuery.parse("volvo \"used " + longest + "x\"");
+            fail("a word over " + TextUtils.MAX_TERM_LENGTH + " characters was parsed");
+        } catch (IllegalArgumentException expected) {
+            // refused
+        }
+    }
+
+    private static List<String> terms(String... terms) {
+        return Arrays.asList(terms);
+    }
+
+    private static int[] counts(int... counts) {
+        return counts;
+    }
+}